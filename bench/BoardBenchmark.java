@@ -0,0 +1,256 @@
+/**
+ * Execution: java BoardBenchmark [mid | late | all]
+ *
+ * Program Description: Microbenchmarks for the Board move pipeline (move,
+ * validKey, lossChecker and addTile) on a corpus of mid- and late-game
+ * positions, with the packed BitBoard engine run alongside for comparison.
+ * Each benchmark is warmed up, then timed over several rounds, and reports
+ * nanoseconds per operation and bytes allocated per operation.
+ *
+ * JMH refuses benchmark classes in the default package, which is where all
+ * of the game classes live, so this is a small harness in the same spirit:
+ * every operation returns a value that is folded into a sink so the JIT
+ * cannot remove it, and allocation is read from the thread's allocation
+ * counter, as JMH's GC profiler does. Boards are built from the corpus before
+ * a pass is timed, so the Board benchmarks time only the operation they name.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+
+public class BoardBenchmark
+{
+    // Number of positions in each corpus
+    private static final int CORPUS_SIZE = 4096;
+
+    // Rounds run before and during measurement, and the length of each round
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+    private static final long ROUND_NANOS = 200_000_000L;
+
+    // Seed for the games the corpora are drawn from, so every run measures the
+    // same positions
+    private static final long CORPUS_SEED = 2048;
+
+    // Results of every operation are folded in here so none can be skipped
+    private static long sink;
+
+    // Per-thread allocation counter
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * One pass of a benchmarked operation over every position in a corpus.
+     * Returns a checksum of the results.
+     */
+    private interface Pass
+    {
+        long run(long[] corpus);
+    }
+
+    /**
+     * Untimed preparation before each pass, e.g. resetting the Boards a pass
+     * changes back to the corpus positions.
+     */
+    private interface Setup
+    {
+        void run(long[] corpus);
+    }
+
+    /**
+     * Input: int minEmpty, int maxEmpty
+     * Output: long[]
+     * Description: Plays CornerPolicy games and collects positions that have
+     * between minEmpty and maxEmpty empty cells. Only positions with at least
+     * one empty cell are kept so addTile always succeeds.
+     */
+    public static long[] buildCorpus(int minEmpty, int maxEmpty)
+    {
+        long[] corpus = new long[CORPUS_SIZE];
+        int size = 0;
+        MovePolicy policy = new CornerPolicy();
+        SplittableRandom random = new SplittableRandom(CORPUS_SEED);
+
+        while (size < CORPUS_SIZE) {
+            Board board = new Board(random.split());
+
+            while (size < CORPUS_SIZE && !board.winChecker() &&
+                   !board.lossChecker()) {
+                board.move(policy.nextMove(board));
+
+                int empty = BitBoard.countEmpty(board.getState());
+                if (empty >= Math.max(1, minEmpty) && empty <= maxEmpty) {
+                    corpus[size] = board.getState();
+                    size++;
+                }
+            }
+        }
+
+        return corpus;
+    }
+
+    /**
+     * Input: String name, long[] corpus, Pass pass
+     * Output: none
+     * Description: Warms up and then measures the input pass, and prints the
+     * time and allocation per operation.
+     */
+    public static void bench(String name, long[] corpus, Pass pass)
+    {
+        bench(name, corpus, null, pass);
+    }
+
+    /**
+     * Input: String name, long[] corpus, Setup setup, Pass pass
+     * Output: none
+     * Description: Like bench(name, corpus, pass), but runs the input setup
+     * before every pass without timing it or counting what it allocates.
+     */
+    public static void bench(String name, long[] corpus, Setup setup, Pass pass)
+    {
+        // Timed nanoseconds and allocated bytes, summed over passes
+        long[] totals = new long[2];
+
+        for (int r = 0; r < WARMUP_ROUNDS; r++) {
+            round(corpus, setup, pass, totals);
+        }
+
+        long ops = 0;
+        totals[0] = 0;
+        totals[1] = 0;
+
+        for (int r = 0; r < MEASURED_ROUNDS; r++) {
+            ops += round(corpus, setup, pass, totals);
+        }
+
+        System.out.printf("%-22s %10.2f ns/op %10.2f B/op%n", name,
+                          (double) totals[0] / ops, (double) totals[1] / ops);
+    }
+
+    /**
+     * Input: long[] corpus, Setup setup, Pass pass, long[] totals
+     * Output: long
+     * Description: Repeats the setup and pass for about ROUND_NANOS, adds the
+     * time and allocation of the passes alone to totals, and returns the
+     * number of operations run.
+     */
+    private static long round(long[] corpus, Setup setup, Pass pass, long[] totals)
+    {
+        long ops = 0;
+        long end = System.nanoTime() + ROUND_NANOS;
+
+        while (System.nanoTime() < end) {
+            if (setup != null) {
+                setup.run(corpus);
+            }
+
+            long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+
+            sink += pass.run(corpus);
+
+            totals[0] += System.nanoTime() - start;
+            totals[1] += THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+            ops += corpus.length;
+        }
+
+        return ops;
+    }
+
+    /**
+     * Input: String label, long[] corpus
+     * Output: none
+     * Description: Runs every benchmark on the input corpus.
+     */
+    public static void benchAll(String label, long[] corpus)
+    {
+        System.out.println("== " + label + " (" + corpus.length + " positions)");
+
+        // Shared spawn source for the Boards built from corpus positions
+        SplittableRandom random = new SplittableRandom(CORPUS_SEED);
+
+        // One Board per position, built outside the timed passes
+        Board[] boards = new Board[corpus.length];
+        Setup reset = c -> {
+            for (int k = 0; k < c.length; k++) {
+                boards[k] = new Board(c[k], random);
+            }
+        };
+        reset.run(corpus);
+
+        // move and addTile change their Boards, so they are reset before each pass
+        bench("Board.move", corpus, reset, c -> {
+            long sum = 0;
+            for (int k = 0; k < c.length; k++) {
+                boards[k].move(BitBoard.KEYS[k & 3]);
+                sum += boards[k].getState();
+            }
+            return sum;
+        });
+
+        bench("Board.validKey", corpus, c -> {
+            long sum = 0;
+            for (int k = 0; k < c.length; k++) {
+                if (boards[k].validKey(BitBoard.KEYS[k & 3])) {
+                    sum++;
+                }
+            }
+            return sum;
+        });
+
+        bench("Board.lossChecker", corpus, c -> {
+            long sum = 0;
+            for (int k = 0; k < c.length; k++) {
+                if (boards[k].lossChecker()) {
+                    sum++;
+                }
+            }
+            return sum;
+        });
+
+        bench("Board.addTile", corpus, reset, c -> {
+            long sum = 0;
+            for (int k = 0; k < c.length; k++) {
+                boards[k].addTile();
+                sum += boards[k].getState();
+            }
+            return sum;
+        });
+
+        bench("BitBoard.move", corpus, c -> {
+            long sum = 0;
+            for (int k = 0; k < c.length; k++) {
+                sum += BitBoard.move(c[k], BitBoard.KEYS[k & 3]);
+            }
+            return sum;
+        });
+
+        bench("BitBoard.canMove", corpus, c -> {
+            long sum = 0;
+            for (int k = 0; k < c.length; k++) {
+                if (BitBoard.canMove(c[k])) {
+                    sum++;
+                }
+            }
+            return sum;
+        });
+    }
+
+    public static void main(String[] args)
+    {
+        String which = (args.length > 0) ? args[0] : "all";
+
+        if (which.equals("mid") || which.equals("all")) {
+            benchAll("mid-game", buildCorpus(4, 9));
+        }
+
+        if (which.equals("late") || which.equals("all")) {
+            benchAll("late-game", buildCorpus(1, 3));
+        }
+
+        // Keeps the sink live
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+}
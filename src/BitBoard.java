@@ -0,0 +1,434 @@
+/**
+ * Execution: java BitBoard
+ *
+ * Program Description: Packed representation of the 2048 Board as a single
+ * 64-bit long. Each of the 16 cells holds a 4-bit exponent (0 = empty, 1 = 2,
+ * 2 = 4, ..., 11 = 2048, 15 = 32768). Cell (i, j) is stored in nibble 4 * i + j,
+ * so row i occupies bits 16 * i to 16 * i + 15, with column 0 in the lowest
+ * nibble. Row 0 is the bottom row of the Board and column 0 the leftmost
+ * column, matching the tileX and tileY coordinates used by Board.
+ */
+
+public final class BitBoard {
+    // Largest exponent a cell can hold. Two tiles at this value do not merge.
+    public static final int MAX_EXPONENT = 15;
+
+    // The four move keys. GameRecord stores a key as its index here, so the
+    // order must never change. Package-private so nothing outside can edit it
+    static final char[] KEYS = {'w', 'a', 's', 'd'};
+
+    // Mask for a single 16-bit row
+    private static final long ROW_MASK = 0xFFFFL;
+
+    // Low bit of every cell outside column 3, and outside row 3
+    private static final long NOT_LAST_COLUMN = 0x0111011101110111L;
+    private static final long NOT_LAST_ROW = 0x0000111111111111L;
+
+    // Row-transition tables indexed by a 16-bit row: the row after moving
+    // towards column 0 (left) or column 3 (right), and the score gained
+    private static final char[] ROW_LEFT = new char[65536];
+    private static final char[] ROW_RIGHT = new char[65536];
+    private static final int[] SCORE_LEFT = new int[65536];
+    private static final int[] SCORE_RIGHT = new int[65536];
+
+    // Precompute the result of moving every possible row once
+    static {
+        for (int row = 0; row < 65536; row++) {
+            int result = 0;
+            int score = 0;
+            int target = 0;     // Next free column in result
+            int pending = 0;    // Tile waiting for a possible merge partner
+
+            for (int j = 0; j < 4; j++) {
+                int exponent = (row >>> (4 * j)) & 0xF;
+
+                if (exponent == 0) {
+                    continue;
+                }
+
+                if (exponent == pending && exponent < MAX_EXPONENT) {
+                    // Merge with the waiting tile
+                    result |= (exponent + 1) << (4 * target);
+                    score += 1 << (exponent + 1);
+                    target++;
+                    pending = 0;
+                }
+                else {
+                    // Place the waiting tile and wait on this one instead
+                    if (pending != 0) {
+                        result |= pending << (4 * target);
+                        target++;
+                    }
+                    pending = exponent;
+                }
+            }
+
+            if (pending != 0) {
+                result |= pending << (4 * target);
+            }
+
+            int reversed = reverseRow(row);
+            ROW_LEFT[row] = (char) result;
+            SCORE_LEFT[row] = score;
+            ROW_RIGHT[reversed] = (char) reverseRow(result);
+            SCORE_RIGHT[reversed] = score;
+        }
+    }
+
+    // Static helper class: no instances
+    private BitBoard() { }
+
+    /**
+     * Input: long board, int i, int j
+     * Output: int
+     * Description: Returns the exponent stored in row i, column j of the board.
+     * Returns 0 for an empty cell.
+     */
+    public static int getExponent(long board, int i, int j) {
+        return (int) (board >>> ((4 * i + j) * 4)) & 0xF;
+    }
+
+    /**
+     * Input: long board, int i, int j, int exponent
+     * Output: long
+     * Description: Returns a copy of the board with row i, column j set to the
+     * input exponent.
+     */
+    public static long setExponent(long board, int i, int j, int exponent) {
+        int shift = (4 * i + j) * 4;
+        return (board & ~(0xFL << shift)) | ((long) exponent << shift);
+    }
+
+    /**
+     * Input: long board, int i
+     * Output: int
+     * Description: Returns row i of the board as a 16-bit value.
+     */
+    public static int getRow(long board, int i) {
+        return (int) ((board >>> (16 * i)) & ROW_MASK);
+    }
+
+    /**
+     * Input: int row
+     * Output: int
+     * Description: Returns the 16-bit row with its four cells in reverse order.
+     */
+    public static int reverseRow(int row) {
+        return ((row >>> 12) & 0x000F) | ((row >>> 4) & 0x00F0) |
+               ((row << 4) & 0x0F00) | ((row << 12) & 0xF000);
+    }
+
+    /**
+     * Input: long board
+     * Output: long
+     * Description: Returns the board reflected along its main diagonal, so that
+     * cell (i, j) moves to (j, i). Columns become rows, which lets vertical
+     * moves reuse the row logic.
+     */
+    public static long transpose(long board) {
+        long a1 = board & 0xF0F00F0FF0F00F0FL;
+        long a2 = board & 0x0000F0F00000F0F0L;
+        long a3 = board & 0x0F0F00000F0F0000L;
+        long a = a1 | (a2 << 12) | (a3 >>> 12);
+        long b1 = a & 0xFF00FF0000FF00FFL;
+        long b2 = a & 0x00FF00FF00000000L;
+        long b3 = a & 0x00000000FF00FF00L;
+        return b1 | (b2 >>> 24) | (b3 << 24);
+    }
+
+    /**
+     * Input: long board
+     * Output: long
+     * Description: Returns the board mirrored left to right, so that cell (i, j)
+     * moves to (i, 3 - j).
+     */
+    public static long flipHorizontal(long board) {
+        // Swap the nibbles in each byte, then the bytes in each row
+        long x = ((board & 0x0F0F0F0F0F0F0F0FL) << 4) |
+                 ((board >>> 4) & 0x0F0F0F0F0F0F0F0FL);
+        return ((x & 0x00FF00FF00FF00FFL) << 8) | ((x >>> 8) & 0x00FF00FF00FF00FFL);
+    }
+
+    /**
+     * Input: long board
+     * Output: long
+     * Description: Returns the board mirrored top to bottom, so that cell (i, j)
+     * moves to (3 - i, j).
+     */
+    public static long flipVertical(long board) {
+        return (board << 48) | ((board << 16) & 0x0000FFFF00000000L) |
+               ((board >>> 16) & 0x00000000FFFF0000L) | (board >>> 48);
+    }
+
+    /**
+     * Input: long board
+     * Output: long
+     * Description: Returns the canonical form of the board: the smallest of its
+     * 8 rotations and reflections. Boards that are rotations or reflections of
+     * each other have the same canonical form, so caches and deduplication can
+     * store one entry for all of them. Only valid for values that do not change
+     * under rotation or reflection, such as game length or search scores.
+     */
+    public static long canonical(long board) {
+        long transposed = transpose(board);
+        long best = board;
+
+        best = Math.min(best, flipHorizontal(board));
+        best = Math.min(best, flipVertical(board));
+        best = Math.min(best, flipVertical(flipHorizontal(board)));
+        best = Math.min(best, transposed);
+        best = Math.min(best, flipHorizontal(transposed));
+        best = Math.min(best, flipVertical(transposed));
+        best = Math.min(best, flipVertical(flipHorizontal(transposed)));
+
+        return best;
+    }
+
+    /**
+     * Input: int row
+     * Output: int
+     * Description: Returns the 16-bit row after sliding and merging it towards
+     * column 0. Each tile merges at most once per move, and when three equal
+     * tiles are in a row the two closest to the direction of movement merge.
+     */
+    public static int moveRowLeft(int row) {
+        return ROW_LEFT[row];
+    }
+
+    /**
+     * Input: int row
+     * Output: int
+     * Description: Returns the 16-bit row after sliding and merging it towards
+     * column 3.
+     */
+    public static int moveRowRight(int row) {
+        return ROW_RIGHT[row];
+    }
+
+    /**
+     * Input: long board, char dir
+     * Output: long
+     * Description: Returns the board after sliding and merging all tiles in the
+     * direction of the key pressed (char dir). Returns the input board unchanged
+     * if dir is not one of WASD or no tile can move.
+     */
+    public static long move(long board, char dir) {
+        // A = left
+        if (dir == 'a') {
+            return moveRows(board, ROW_LEFT);
+        }
+
+        // D = right
+        else if (dir == 'd') {
+            return moveRows(board, ROW_RIGHT);
+        }
+
+        // S = down (towards row 0), columns become rows once transposed
+        else if (dir == 's') {
+            return transpose(moveRows(transpose(board), ROW_LEFT));
+        }
+
+        // W = up (towards row 3)
+        else if (dir == 'w') {
+            return transpose(moveRows(transpose(board), ROW_RIGHT));
+        }
+
+        return board;
+    }
+
+    /**
+     * Input: long board, char dir
+     * Output: int
+     * Description: Returns the score gained by the move in direction dir, the
+     * sum of the values of all tiles created by merging. Returns 0 if dir is
+     * not one of WASD.
+     */
+    public static int moveScore(long board, char dir) {
+        if (dir == 'a') {
+            return rowScores(board, SCORE_LEFT);
+        }
+        else if (dir == 'd') {
+            return rowScores(board, SCORE_RIGHT);
+        }
+        else if (dir == 's') {
+            return rowScores(transpose(board), SCORE_LEFT);
+        }
+        else if (dir == 'w') {
+            return rowScores(transpose(board), SCORE_RIGHT);
+        }
+
+        return 0;
+    }
+
+    /**
+     * Input: long board, char[] table
+     * Output: long
+     * Description: Replaces every row of the board with its entry in the input
+     * row-transition table.
+     */
+    private static long moveRows(long board, char[] table) {
+        return (long) table[(int) (board & ROW_MASK)] |
+               (long) table[(int) ((board >>> 16) & ROW_MASK)] << 16 |
+               (long) table[(int) ((board >>> 32) & ROW_MASK)] << 32 |
+               (long) table[(int) (board >>> 48)] << 48;
+    }
+
+    /**
+     * Input: long board, int[] table
+     * Output: int
+     * Description: Sums the input score table over the four rows of the board.
+     */
+    private static int rowScores(long board, int[] table) {
+        return table[(int) (board & ROW_MASK)] +
+               table[(int) ((board >>> 16) & ROW_MASK)] +
+               table[(int) ((board >>> 32) & ROW_MASK)] +
+               table[(int) (board >>> 48)];
+    }
+
+    /**
+     * Input: long board
+     * Output: long
+     * Description: Returns a mask with the lowest bit of each empty cell's nibble
+     * set and all other bits clear.
+     */
+    public static long emptyCells(long board) {
+        // Fold each nibble onto its lowest bit, so that bit is set for any
+        // non-empty cell
+        long occupied = board | (board >>> 1);
+        occupied |= occupied >>> 2;
+        return ~occupied & 0x1111111111111111L;
+    }
+
+    /**
+     * Input: long board
+     * Output: int
+     * Description: Returns the number of empty cells on the board.
+     */
+    public static int countEmpty(long board) {
+        return Long.bitCount(emptyCells(board));
+    }
+
+    /**
+     * Input: long board, int n
+     * Output: int
+     * Description: Returns the cell index (4 * i + j) of the n-th empty cell on
+     * the board, counting from cell 0. n must be less than countEmpty(board).
+     */
+    public static int nthEmptyCell(long board, int n) {
+        long empty = emptyCells(board);
+
+        // Clear the n lowest empty cells, at most 15 steps
+        for (int k = 0; k < n; k++) {
+            empty &= empty - 1;
+        }
+
+        return Long.numberOfTrailingZeros(empty) >>> 2;
+    }
+
+    /**
+     * Input: long board
+     * Output: int
+     * Description: Returns the largest exponent on the board, or 0 if the board
+     * is empty.
+     */
+    public static int maxExponent(long board) {
+        int max = 0;
+
+        for (int k = 0; k < 16; k++) {
+            max = Math.max(max, (int) (board >>> (4 * k)) & 0xF);
+        }
+
+        return max;
+    }
+
+    /**
+     * Input: long board, int exponent
+     * Output: boolean
+     * Description: Returns true if any cell holds the input exponent. XORing
+     * every nibble with the exponent turns matching cells empty, so this is
+     * emptyCells on the result.
+     */
+    public static boolean hasExponent(long board, int exponent) {
+        return emptyCells(board ^ (exponent * 0x1111111111111111L)) != 0;
+    }
+
+    /**
+     * Input: long board, char dir
+     * Output: boolean
+     * Description: Returns true if moving in the input direction changes the
+     * board, without making the move. A move changes the board exactly when
+     * some tile has an empty cell next to it on the side it moves toward, or
+     * two equal tiles that can merge are next to each other along the move.
+     * Returns false for keys other than WASD.
+     */
+    public static boolean canMove(long board, char dir) {
+        long empty = emptyCells(board);
+        long occupied = ~empty & 0x1111111111111111L;
+
+        // A = left (towards column 0): empty cell with a tile to its right
+        if (dir == 'a') {
+            return (((empty & NOT_LAST_COLUMN) << 4) & occupied) != 0 ||
+                   horizontalMerges(board, occupied) != 0;
+        }
+
+        // D = right: tile with an empty cell to its right
+        else if (dir == 'd') {
+            return (((occupied & NOT_LAST_COLUMN) << 4) & empty) != 0 ||
+                   horizontalMerges(board, occupied) != 0;
+        }
+
+        // S = down (towards row 0): empty cell with a tile above it
+        else if (dir == 's') {
+            return (((empty & NOT_LAST_ROW) << 16) & occupied) != 0 ||
+                   verticalMerges(board, occupied) != 0;
+        }
+
+        // W = up: tile with an empty cell above it
+        else if (dir == 'w') {
+            return (((occupied & NOT_LAST_ROW) << 16) & empty) != 0 ||
+                   verticalMerges(board, occupied) != 0;
+        }
+
+        return false;
+    }
+
+    /**
+     * Input: long board
+     * Output: boolean
+     * Description: Returns true if at least one of the four moves changes the
+     * board: some pair of neighbouring cells has exactly one empty cell, or
+     * holds two equal tiles that can merge.
+     */
+    public static boolean canMove(long board) {
+        long empty = emptyCells(board);
+        long occupied = ~empty & 0x1111111111111111L;
+
+        return ((empty ^ (empty >>> 4)) & NOT_LAST_COLUMN) != 0 ||
+               ((empty ^ (empty >>> 16)) & NOT_LAST_ROW) != 0 ||
+               horizontalMerges(board, occupied) != 0 ||
+               verticalMerges(board, occupied) != 0;
+    }
+
+    /**
+     * Input: long board, long occupied
+     * Output: long
+     * Description: Returns a mask with the low bit of cell (i, j) set if it and
+     * cell (i, j + 1) hold the same tile and can merge.
+     */
+    private static long horizontalMerges(long board, long occupied) {
+        // Equal neighbours XOR to an empty nibble; 2^15 tiles never merge
+        return emptyCells(board ^ (board >>> 4)) & occupied & ~emptyCells(~board) &
+               NOT_LAST_COLUMN;
+    }
+
+    /**
+     * Input: long board, long occupied
+     * Output: long
+     * Description: Returns a mask with the low bit of cell (i, j) set if it and
+     * cell (i + 1, j) hold the same tile and can merge.
+     */
+    private static long verticalMerges(long board, long occupied) {
+        return emptyCells(board ^ (board >>> 16)) & occupied & ~emptyCells(~board) &
+               NOT_LAST_ROW;
+    }
+}
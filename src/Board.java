@@ -1,16 +1,27 @@
 /**
  * Execution: java Board
  *
- * Program Description: Creates a representation of the 2048 Board as a 2D array.
- * Handles all board operations, checks for wins and losses, and contains methods
- * that draw the win and loss messages.
+ * Program Description: Creates a representation of the 2048 Board backed by a
+ * packed 64-bit state (see BitBoard). Handles all board operations and checks
+ * for wins and losses. Drawing lives in BoardRenderer, so Board has no
+ * dependency on PennDraw and can run without a display.
  */
 
+import java.util.SplittableRandom;
+
 public class Board {
-    private Tile[][] boardArray;        // 2D array
-                                        // representation of board
+    private long state;                 // Packed 4x4 board, one 4-bit
+                                        // exponent per cell
     private int numMoves;               // Number of moves made
-    private int numTiles;               // Number of tiles on board
+    private int score;                  // Sum of the tiles made by merges
+    private int maxExponent;            // Largest exponent on the board
+    private boolean lost;               // Board full with no move left
+    private SplittableRandom random;    // Source of tile spawns
+    private int lastSpawnCell = -1;     // Cell (4 * i + j) of the last tile
+                                        // added, -1 if none
+    private int lastSpawnExponent;      // Exponent of the last tile added
+    private MoveHistory history;        // Undo/redo positions, null until
+                                        // enableUndo is called
 
     // Fixed X and Y-coordinates of possible tile positions on board
     private static double[] tileX = {0.2, 0.4, 0.6, 0.8};
@@ -19,12 +30,25 @@ public class Board {
     /**
      * Input: none
      * Output: none
-     * Description: Constructor that creates a 2D array representation of the 2028
-     * board (4 by 4)
+     * Description: Constructor that creates an empty 4 by 4 board with an
+     * unseeded random source and adds the two starting tiles.
      */
     public Board() {
-        this.boardArray = new Tile[4][4];
+        this(new SplittableRandom());
+    }
+
+    /**
+     * Input: SplittableRandom random
+     * Output: none
+     * Description: Constructor that creates an empty 4 by 4 board whose tile
+     * spawns are drawn from the input random source, and adds the two starting
+     * tiles. Two Boards given sources with the same seed play out identically
+     * for the same keys.
+     */
+    public Board(SplittableRandom random) {
+        this.state = 0;
         this.numMoves = 0;
+        this.random = random;
 
         for (int i = 0; i < 2; i++)
         {
@@ -32,128 +56,160 @@ public class Board {
         }
     }
 
+    /**
+     * Input: long state
+     * Output: none
+     * Description: Constructor that creates a Board from an existing packed
+     * state (see BitBoard), e.g. a saved position. No tiles are added.
+     */
+    public Board(long state) {
+        this(state, new SplittableRandom());
+    }
+
+    /**
+     * Input: long state, SplittableRandom random
+     * Output: none
+     * Description: Constructor that creates a Board from an existing packed
+     * state whose later tile spawns are drawn from the input random source.
+     * The source may be null for a Board whose spawns are all given, e.g. a
+     * replay through move(dir, spawnCell, spawnExponent); such a Board needs
+     * no random source at all, and addTile() then throws
+     * IllegalStateException.
+     */
+    public Board(long state, SplittableRandom random) {
+        this.state = state;
+        this.numMoves = 0;
+        this.random = random;
+        this.maxExponent = BitBoard.maxExponent(state);
+        updateLost();
+    }
+
     /**
      * Input: none
      * Output: none
-     * Description: Creates a new tile object with value 2 or 4 and adds it to a
-     * random, unoccupied space on the board.
+     * Description: Adds a tile with value 2 or 4 to a random, unoccupied space
+     * on the board. The space is chosen with a single random index into the
+     * empty spaces, so the cost does not depend on how full the board is. Does
+     * nothing if the board is full.
      */
     public void addTile() {
-        // Determine coordinates for new tile
-        int i = (int) (Math.random() * 4);
-        int j = (int) (Math.random() * 4);
+        requireRandom();
 
-        if (boardArray[i][j] == null) {
-            boardArray[i][j] = new Tile(tileX[j], tileY[i]);
-            numTiles++;
-        }
-        else {
-            // If random space chosen is not null, rerun method until tile can be
-            // successfully added
-            addTile();
+        int empty = BitBoard.countEmpty(state);
+
+        if (empty == 0) {
+            return;
         }
+
+        // Determine position for new tile
+        int cell = BitBoard.nthEmptyCell(state, random.nextInt(empty));
+
+        // Exponent 1 is a 2 tile, exponent 2 is a 4 tile
+        int exponent = random.nextBoolean() ? 1 : 2;
+        addTile(cell, exponent);
     }
 
     /**
      * Input: none
      * Output: none
-     * Description: Draws all tiles on Board.
+     * Description: Throws IllegalStateException if the Board was made without
+     * a random source, so it cannot choose its own spawns.
      */
-    public void draw()
-    {
-        PennDraw.setFontSize(30);
-
-        // Iterates through Board
-        for (Tile[] tiles : boardArray) {
-            for (Tile tile : tiles) {
-                if (tile != null) {
-                    // Draws each tile
-                    tile.drawTile();
-                }
-            }
+    private void requireRandom() {
+        if (random == null) {
+            throw new IllegalStateException("Board has no random source; spawns must be given");
         }
     }
 
     /**
-     * Input: int i, int j, char dir
-     * Output: Tile
-     * Description: Returns the tile that is adjacent to the input tile in the
-     * direction (char dir) inputted.
+     * Input: int cell, int exponent
+     * Output: none
+     * Description: Adds a tile of the input exponent at the input cell
+     * (4 * i + j) instead of a random one, e.g. to replay a recorded spawn.
+     * Throws IllegalArgumentException if the cell is not 0 to 15, the
+     * exponent is not 1 to 15, or the cell is occupied.
      */
-    public Tile nextTile(int i, int j, char dir)
-    {
-        // W = above
-        if (dir == 'w') {
-            // Tile within bounds of 4x4 array
-            if (i < 3) {
-                // Column above, same row
-                return boardArray[i + 1][j];
-            }
-        }
+    public void addTile(int cell, int exponent) {
+        checkSpawn(cell, exponent);
 
-        // A = left
-        else if (dir == 'a') {
-            // Tile within bounds of 4x4 array
-            if (j >= 1) {
-                // Same column, row left
-                return boardArray[i][j - 1];
-            }
+        if (BitBoard.getExponent(state, cell / 4, cell % 4) != 0) {
+            throw new IllegalArgumentException("cell " + cell + " is occupied");
         }
 
-        // S = down
-        else if (dir == 's') {
-            // Tile within bounds of 4x4 array
-            if (i >= 1) {
-                // Column below, same row
-                return boardArray[i - 1][j];
-            }
-        }
+        state = BitBoard.setExponent(state, cell / 4, cell % 4, exponent);
 
-        // D = right
-        else if (dir == 'd') {
-            // Tile within bounds of 4x4 array
-            if (j < 3) {
-                // Same column, row right
-                return boardArray[i][j + 1];
-            }
+        lastSpawnCell = cell;
+        lastSpawnExponent = exponent;
+
+        if (exponent > maxExponent) {
+            maxExponent = exponent;
         }
 
-        return null;
+        // A spawn is the only way the board fills up
+        updateLost();
     }
 
     /**
-     * Input: int i, int j, char dir
-     * Output: boolean
-     * Description: Determines if a move can be made to be used in the validKey
-     * function. This function is called for each tile on the Board. Returns true
-     * if the specified tile and direction is not blocked by another tile or the
-     * edge of the Board. If either condition is not met, returns false.
+     * Input: int cell, int exponent
+     * Output: none
+     * Description: Throws IllegalArgumentException unless the input cell and
+     * exponent fit in the packed board: a cell 0 to 15 and an exponent 1 to
+     * 15. Anything else would be written into the wrong nibble.
      */
-    public boolean canMove(int i, int j, char dir) {
-        // If specified tile is null, a move cannot occur.
-        if (boardArray[i][j] == null) {
-            return false;
+    private static void checkSpawn(int cell, int exponent) {
+        if (cell < 0 || cell > 15 || exponent < 1 || exponent > BitBoard.MAX_EXPONENT) {
+            throw new IllegalArgumentException("not a spawn: cell " + cell +
+                                               ", exponent " + exponent);
         }
+    }
 
-        // If specified tile is at the edge of the board, a move cannot occur.
-        else if (reachesEdge(i, j, dir)) {
-            return false;
-        }
+    /**
+     * Input: none
+     * Output: none
+     * Description: Sets whether the game is lost. Only a full board is checked
+     * for moves, so this is a couple of mask operations most of the time.
+     */
+    private void updateLost() {
+        lost = BitBoard.emptyCells(state) == 0 && !BitBoard.canMove(state);
+    }
 
-        // If adjacent tile with respect to dir is null, a move is possible.
-        else if (nextTile(i, j, dir) == null)
-        {
-            return true;
-        }
+    /**
+     * Input: int moveScore
+     * Output: none
+     * Description: Raises maxExponent if the move just made merged two of the
+     * largest tiles. A move can make a tile at most one exponent larger, and
+     * only if its merges were worth at least that tile, so the board is only
+     * checked in that case.
+     */
+    private void updateMaxExponent(int moveScore) {
+        int next = maxExponent + 1;
 
-        // Checks if adjacent tile with respect to dir has the same value as input
-        // Tile. If so, tiles can be merged.
-        else
-        {
-            return nextTile(i, j, dir).mergeAllowed(boardArray[i][j]);
+        if (next <= BitBoard.MAX_EXPONENT && moveScore >= (1 << next) &&
+            BitBoard.hasExponent(state, next)) {
+            maxExponent = next;
         }
     }
 
+    /**
+     * Input: int i, int j
+     * Output: int
+     * Description: Returns the value of the tile in row i, column j, or 0 if the
+     * space is empty.
+     */
+    public int getValue(int i, int j) {
+        int exponent = BitBoard.getExponent(state, i, j);
+        return (exponent == 0) ? 0 : 1 << exponent;
+    }
+
+    /**
+     * Input: none
+     * Output: long
+     * Description: Getter method that returns the packed board state.
+     */
+    public long getState() {
+        return this.state;
+    }
+
     /**
      * Input: char dir
      * Output: boolean
@@ -162,409 +218,193 @@ public class Board {
      */
     public boolean validKey(char dir)
     {
-        // Allowed move keys: WASD
-        if (dir == 'w' || dir == 'a' || dir == 's' || dir == 'd') {
-
-            // Iterates through entire Board to see if a tile can move. Returns
-            // true when reaches a tile that can move.
-            for (int i = 0; i < boardArray.length; i++)
-            {
-                for (int j = 0; j < boardArray[i].length; j++)
-                {
-                    if (canMove(i, j, dir)) {
-                        return true;
-                    }
-                }
-            }
-        }
-
-        // No moves possible
-        return false;
+        // Checked with masks on the packed board, without making the move
+        return BitBoard.canMove(state, dir);
     }
 
     /**
-     * Input: int i, int j, char dir
-     * Output: boolean
-     * Description: Returns true if the key pressed (char dir) results in the tile
-     * hitting the edge of the Board.
+     * Input: char dir
+     * Output: none
+     * Description: Processes the move by sliding and merging all tiles in the
+     * input direction (char dir). Adds a new tile once the move completes,
+     * increments the number of moves made and adds the value of every tile
+     * made by a merge to the score.
      */
-    public boolean reachesEdge(int i, int j, char dir) {
-        // W = up
-        if (dir == 'w') {
-            return i == 3;
-        }
+    public void move(char dir) {
+        long next = BitBoard.move(state, dir);
 
-        // A = left
-        else if (dir == 'a') {
-            return j == 0;
-        }
+        if (next != state) {
+            // Checked before anything changes, like a bad spawn in move(dir, cell, exponent)
+            requireRandom();
 
-        // S = down
-        else if (dir == 's') {
-            return i == 0;
-        }
+            // Adds the merges' tile values from the same row tables
+            int moveScore = BitBoard.moveScore(state, dir);
+            score += moveScore;
+            state = next;
+            updateMaxExponent(moveScore);
 
-        // D = right
-        else if (dir == 'd') {
-            return j == 3;
-        }
+            // Adds new tile
+            addTile();
 
-        return false;
+            // Increases number of moves made
+            numMoves++;
+
+            if (history != null) {
+                history.record(state, numMoves, score);
+            }
+        }
     }
 
     /**
-     * Input: char dir
+     * Input: char dir, int spawnCell, int spawnExponent
      * Output: none
-     * Description: Moves all blocks on Board by manipulating the boardArray as
-     * determined by the key pressed (char dir).
+     * Description: Processes the move like move(dir), but adds the input tile
+     * instead of a random one. Used to replay recorded games. Throws
+     * IllegalArgumentException, leaving the Board unchanged, if the spawn is
+     * out of range (see addTile) or the move leaves the input cell occupied.
      */
-    public void moveAllTiles(char dir) {
-        // W = up
-        if (dir == 'w') {
-            // Iterates through all 4 rows
-            for (int i = 0; i < 4; i++) {
-                // Iterates through all 4 columns
-                for (int j = 0; j < 4; j++) {
-                    int k = i;
-                    // Ensures current tile encounters another tile or an edge
-                    while ((!reachesEdge(k, j, dir)) &&
-                            (nextTile(k, j, dir) == null))
-                    {
-                        // Shifts tile up 1 row
-                        boardArray[k + 1][j] = boardArray[k][j];
-
-                        // Overwrites previous position
-                        boardArray[k][j] = null;
-
-                        k++;
-                    }
-                }
+    public void move(char dir, int spawnCell, int spawnExponent) {
+        long next = BitBoard.move(state, dir);
+
+        if (next != state) {
+            // Checked before anything changes, so a bad spawn leaves the Board as it was
+            checkSpawn(spawnCell, spawnExponent);
+            if (BitBoard.getExponent(next, spawnCell / 4, spawnCell % 4) != 0) {
+                throw new IllegalArgumentException("cell " + spawnCell + " is occupied");
             }
-        }
-
-        // A = left
-        else if (dir == 'a') {
-            // Iterates through all 4 columns
-            for (int j = 0; j < 4; j++) {
-                // Iterates through all 4 rows
-                for (int i = 0; i < 4; i++) {
-                    int k = j;
-                    // Ensures current tile encounters another tile or an edge
-                    while ((!reachesEdge(i, k, dir)) &&
-                            (nextTile(i, k, dir) == null))
-                    {
-                        // Shifts tile left 1 column
-                        boardArray[i][k - 1] = boardArray[i][k];
-
-                        // Overwrites previous position
-                        boardArray[i][k] = null;
-
-                        k--;
-                    }
-                }
-            }
-        }
 
-        // S = down
-        else if (dir == 's') {
-            // Iterates through all 4 rows
-            for (int i = 0; i < 4; i++) {
-                // Iterates through all 4 columns
-                for (int j = 0; j < 4; j++) {
-                    int k = i;
-                    // Ensures current tile encounters another tile or an edge
-                    while ((!reachesEdge(k, j, dir)) &&
-                            (nextTile(k, j, dir) == null))
-                    {
-                        // Shifts tile down 1 row
-                        boardArray[k - 1][j] = boardArray[k][j];
-
-                        // Overwrites previous position
-                        boardArray[k][j] = null;
-
-                        k--;
-                    }
-                }
-            }
-        }
+            int moveScore = BitBoard.moveScore(state, dir);
+            score += moveScore;
+            state = next;
+            updateMaxExponent(moveScore);
+            addTile(spawnCell, spawnExponent);
+            numMoves++;
 
-        // D = right
-        else if (dir == 'd') {
-            // Iterates through all 4 columns
-            for (int j = 0; j < 4; j++) {
-                // Iterates through all 4 rows
-                for (int i = 0; i < 4; i++) {
-                    int k = j;
-                    // Ensures current tile encounters another tile or an edge
-                    while ((!reachesEdge(i, k, dir)) &&
-                            (nextTile(i, k, dir) == null))
-                    {
-                        // Shifts tile right 1 column
-                        boardArray[i][k + 1] = boardArray[i][k];
-
-                        // Overwrites previous position
-                        boardArray[i][k] = null;
-
-                        k++;
-                    }
-                }
+            if (history != null) {
+                history.record(state, numMoves, score);
             }
         }
     }
 
     /**
-     * Input: int i, int j, char dir
-     * Output: boolean
-     * Description: Returns true if adjacent tile has same value as input tile.
-     * Returns false otherwise, or if current and/or adjacent tiles are null.
-     * Adjacent tile defined using key pressed (char dir).
+     * Input: int capacity
+     * Output: none
+     * Description: Starts keeping the last capacity positions so moves can be
+     * undone and redone. Boards do not keep a history unless this is called.
      */
-    public boolean canMerge(int i, int j, char dir) {
-        // If tile is null, cannot merge.
-        if (boardArray[i][j] == null) {
-            return false;
-        }
-
-        // If adjacent tile is null, cannot merge.
-        else if (nextTile(i, j, dir) == null) {
-            return false;
-        }
-
-        // If adjacent tile has same value as input tile, can merge.
-        else if (nextTile(i, j, dir).mergeAllowed(boardArray[i][j]))
-        {
-            return true;
-        }
-
-        return false;
+    public void enableUndo(int capacity) {
+        history = new MoveHistory(capacity, state, numMoves, score);
     }
 
     /**
-     * Input: char dir
-     * Output: none
-     * Description: Goes through entire board and merges all possible tiles in the
-     * specified direction (char dir). If there are three tiles in a row, the two
-     * tiles closest to the direction of movement can be merged. If there are four
-     * tiles in a row, the pairs are merged.
+     * Input: none
+     * Output: boolean
+     * Description: Takes back the last move, including the tile it added.
+     * Returns false if there is no move to take back.
      */
-    public void mergeAll(char dir) {
-        // W = up
-        if (dir == 'w') {
-            // Iterates through all 4 rows
-            for (int i = 0; i < 4; i++) {
-                // Iterates through all 4 columns
-                for (int j = 0; j < 4; j++) {
-                    // Ensures tile can merge with adjacent tile
-                    if (canMerge(i, j, dir)) {
-                        // Sets new tile value (double old tile value)
-                        nextTile(i, j, dir).finalMergeValue();
-
-                        // Overwrites previous position
-                        boardArray[i][j] = null;
-
-                        // Decreases number of tiles by 1
-                        numTiles--;
-                    }
-                }
-            }
-        }
-
-        // A = left
-        else if (dir == 'a') {
-            // Iterates through all 4 columns
-            for (int j = 0; j < 4; j++) {
-                // Iterates through all 4 rows
-                for (int i = 0; i < 4; i++) {
-                    // Ensures tile can merge with adjacent tile
-                    if (canMerge(i, j, dir)) {
-                        // Sets new tile value (double old tile value)
-                        nextTile(i, j, dir).finalMergeValue();
-
-                        // Overwrites previous position
-                        boardArray[i][j] = null;
-
-                        // Decreases number of tiles by 1
-                        numTiles--;
-                    }
-                }
-            }
-        }
-
-        // S = down
-        else if (dir == 's') {
-            // Iterates through all 4 rows
-            for (int i = 0; i < 4; i++) {
-                // Iterates through all 4 columns
-                for (int j = 0; j < 4; j++) {
-                    // Ensures tile can merge with adjacent tile
-                    if (canMerge(i, j, dir)) {
-                        // Sets new tile value (double old tile value)
-                        nextTile(i, j, dir).finalMergeValue();
-
-                        // Overwrites previous position
-                        boardArray[i][j] = null;
-
-                        // Decreases number of tiles by 1
-                        numTiles--;
-                    }
-                }
-            }
+    public boolean undo() {
+        if (history == null || !history.undo()) {
+            return false;
         }
 
-        // D = right
-        else if (dir == 'd') {
-            // Iterates through all 4 columns
-            for (int j = 0; j < 4; j++) {
-                // Iterates through all 4 rows
-                for (int i = 0; i < 4; i++) {
-                    // Ensures tile can merge with adjacent tile
-                    if (canMerge(i, j, dir)) {
-                        // Sets new tile value (double old tile value)
-                        nextTile(i, j, dir).finalMergeValue();
-
-                        // Overwrites previous position
-                        boardArray[i][j] = null;
-
-                        // Decreases number of tiles by 1
-                        numTiles--;
-                    }
-                }
-            }
-        }
+        state = history.getState();
+        numMoves = history.getNumMoves();
+        score = history.getScore();
+        maxExponent = BitBoard.maxExponent(state);
+        updateLost();
+        return true;
     }
 
     /**
-     * Input: char dir
-     * Output: none
-     * Description: Processes the move by executing moveAllTiles and mergeAll
-     * functions in the input direction (char dir). Adds a new tile once move
-     * completes and increments number of tiles. Also updates boardArray after the
-     * move.
+     * Input: none
+     * Output: boolean
+     * Description: Makes the last move that was taken back again, with the same
+     * tile added. Returns false if there is none; making a new move discards
+     * any moves that could have been redone.
      */
-    public void move(char dir) {
-        if (validKey(dir)) {
-            // Process move
-            moveAllTiles(dir);
-            mergeAll(dir);
-            moveAllTiles(dir);
-
-            // Update boardArray
-            for (int i = 0; i < boardArray.length; i++)
-            {
-                for (int j = 0; j < boardArray[i].length; j++)
-                {
-                    if (boardArray[i][j] != null) {
-                        boardArray[i][j].setX(tileX[j]);
-                        boardArray[i][j].setY(tileY[i]);
-                    }
-                }
-            }
-
-            // Adds new tile
-            addTile();
-
-            // Increases number of moves made
-            numMoves++;
+    public boolean redo() {
+        if (history == null || !history.redo()) {
+            return false;
         }
+
+        state = history.getState();
+        numMoves = history.getNumMoves();
+        score = history.getScore();
+        maxExponent = BitBoard.maxExponent(state);
+        updateLost();
+        return true;
     }
 
     /**
      * Input: none
      * Output: boolean
      * Description: If the value of a Tile reaches 2048, return true. Otherwise,
-     * return false.
+     * return false. The largest tile is kept up to date as moves are made, so
+     * this only reads a field.
      */
     public boolean winChecker() {
-        // Iterates through all elements in boardArray
-        for (Tile[] tiles : boardArray) {
-            for (Tile tile : tiles) {
-                // Checks if tile value equals 2048
-                if (tile != null && tile.getValue() == 2048) {
-                    return true;
-                }
-            }
-        }
+        // Exponent 11 is the 2048 tile
+        return maxExponent >= 11;
+    }
 
-        return false;
+    /**
+     * Input: none
+     * Output: int
+     * Description: Getter method that returns the largest exponent on the
+     * board.
+     */
+    public int getMaxExponent() {
+        return this.maxExponent;
     }
 
     /**
      * Input: none
      * Output: boolean
      * Description: If board is full and no tiles can merge, the game is lost and
-     * returns true. Otherwise, can continue playing and returns false.
+     * returns true. Otherwise, can continue playing and returns false. Checked
+     * once whenever a tile is added, so this only reads a field.
      */
     public boolean lossChecker() {
-        // Board still has empty spaces, not lost yet
-        if (numTiles < 16) {
-            return false;
-        }
-
-        // Iterates through entire Board
-        for (int i = 0; i < 4; i++) {
-            for (int j = 0; j < 4; j++) {
-                // Checks if adjacent tiles have the same score to merge
-                if (i >= 3 ||
-                        !boardArray[i][j].mergeAllowed(boardArray[i + 1][j])) {
-                    if (j < 3 &&
-                            boardArray[i][j].mergeAllowed(boardArray[i][j + 1])) {
-                        return false;
-                    }
-                }
-                else
-                {
-                    return false;
-                }
-            }
-        }
+        return this.lost;
+    }
 
-        return true;
+    /**
+     * Input: none
+     * Output: int
+     * Description: Getter method that returns the score: the sum of the values
+     * of all tiles made by merges so far.
+     */
+    public int getScore() {
+        return this.score;
     }
 
     /**
      * Input: none
-     * Output: none
-     * Description: Draws the number of moves made. To be used on the win and loss
-     * screens.
+     * Output: int
+     * Description: Getter method that returns the cell (4 * i + j) of the last
+     * tile added, or -1 if none has been added.
      */
-    public void printMovesMade() {
-        PennDraw.setFontSize(25);
-        PennDraw.setPenColor(PennDraw.WHITE);
-        PennDraw.text(0.5, 0.35, "Moves Made: " + this.numMoves);
+    public int getLastSpawnCell() {
+        return this.lastSpawnCell;
     }
 
     /**
      * Input: none
-     * Output: none
-     * Description: Draws the win screen
+     * Output: int
+     * Description: Getter method that returns the exponent of the last tile
+     * added (1 for a 2 tile, 2 for a 4 tile).
      */
-    public void winDrawing() {
-        // Green background
-        PennDraw.setPenColor(43, 196, 46);
-        PennDraw.filledSquare(0.5, 0.5, 0.5);
-
-        // Win message and number of moves
-        PennDraw.setFontSize(32);
-        PennDraw.setPenColor(PennDraw.BLACK);
-        PennDraw.text(0.5, 0.5, "2048 Achieved! You win!");
-        printMovesMade();
+    public int getLastSpawnExponent() {
+        return this.lastSpawnExponent;
     }
 
     /**
      * Input: none
-     * Output: none
-     * Description: Draws the lose screen
+     * Output: int
+     * Description: Getter method that returns the number of moves made.
      */
-    public void loseDrawing() {
-        // Red background
-        PennDraw.setPenColor(196, 53, 43);
-        PennDraw.filledSquare(0.5, 0.5, 0.5);
-
-        // Lose message and number of moves
-        PennDraw.setFontSize(32);
-        PennDraw.setPenColor(PennDraw.WHITE);
-        PennDraw.text(0.5, 0.5, "Out of moves. You lose.");
-        printMovesMade();
+    public int getNumMoves() {
+        return this.numMoves;
     }
 
     /**
@@ -0,0 +1,130 @@
+/**
+ * Execution: java BoardRenderer
+ *
+ * Program Description: Draws a Board with PennDraw: the tiles, and the win and
+ * loss messages. Kept separate from Board so the game logic can run headless.
+ */
+
+public class BoardRenderer
+{
+    // Half the spacing between cell centers; a cell's tile and border fit
+    // inside a square this size
+    private static final double CELL_HALF_SIZE = 0.1;
+
+    /**
+     * Input: Board board
+     * Output: none
+     * Description: Draws all tiles on the input Board.
+     */
+    public static void draw(Board board)
+    {
+        PennDraw.setFontSize(30);
+
+        // Iterates through Board
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                int value = board.getValue(i, j);
+                if (value != 0) {
+                    // Draws each tile
+                    new Tile(board.getTileX(j), board.getTileY(i), value)
+                        .drawTile();
+                }
+            }
+        }
+    }
+
+    /**
+     * Input: Board board, long previous
+     * Output: none
+     * Description: Redraws only the cells whose tiles differ between the input
+     * packed state and the Board, and marks each one for PennDraw.advanceDirty.
+     * Everything else drawn is left as it is.
+     */
+    public static void drawChanged(Board board, long previous)
+    {
+        // Cells whose nibbles differ are the non-empty cells of the XOR
+        long changed = ~BitBoard.emptyCells(board.getState() ^ previous) &
+                       0x1111111111111111L;
+
+        while (changed != 0) {
+            int cell = Long.numberOfTrailingZeros(changed) >>> 2;
+            int i = cell / 4;
+            int j = cell % 4;
+            double x = board.getTileX(j);
+            double y = board.getTileY(i);
+
+            // Black background erases the old tile's border, then the empty
+            // white square drawn by Game2048.drawBackground
+            PennDraw.setPenColor(PennDraw.BLACK);
+            PennDraw.filledSquare(x, y, CELL_HALF_SIZE);
+            PennDraw.setPenColor(PennDraw.WHITE);
+            PennDraw.filledSquare(x, y, 0.09);
+
+            int value = board.getValue(i, j);
+            if (value != 0) {
+                new Tile(x, y, value).drawTile();
+            }
+
+            PennDraw.markDirty(x, y, CELL_HALF_SIZE, CELL_HALF_SIZE);
+            changed &= changed - 1;
+        }
+    }
+
+    /**
+     * Input: char key
+     * Output: none
+     * Description: Draws the suggested key below the board.
+     */
+    public static void drawHint(char key) {
+        PennDraw.setPenColor(PennDraw.WHITE);
+        PennDraw.setFontSize(20);
+        PennDraw.text(0.5, 0.05, "Hint: " + Character.toUpperCase(key));
+    }
+
+    /**
+     * Input: Board board
+     * Output: none
+     * Description: Draws the number of moves made and the score. To be used on
+     * the win and loss screens.
+     */
+    public static void printMovesMade(Board board) {
+        PennDraw.setFontSize(25);
+        PennDraw.setPenColor(PennDraw.WHITE);
+        PennDraw.text(0.5, 0.35, "Moves Made: " + board.getNumMoves());
+        PennDraw.text(0.5, 0.28, "Score: " + board.getScore());
+    }
+
+    /**
+     * Input: Board board
+     * Output: none
+     * Description: Draws the win screen
+     */
+    public static void winDrawing(Board board) {
+        // Green background
+        PennDraw.setPenColor(43, 196, 46);
+        PennDraw.filledSquare(0.5, 0.5, 0.5);
+
+        // Win message and number of moves
+        PennDraw.setFontSize(32);
+        PennDraw.setPenColor(PennDraw.BLACK);
+        PennDraw.text(0.5, 0.5, "2048 Achieved! You win!");
+        printMovesMade(board);
+    }
+
+    /**
+     * Input: Board board
+     * Output: none
+     * Description: Draws the lose screen
+     */
+    public static void loseDrawing(Board board) {
+        // Red background
+        PennDraw.setPenColor(196, 53, 43);
+        PennDraw.filledSquare(0.5, 0.5, 0.5);
+
+        // Lose message and number of moves
+        PennDraw.setFontSize(32);
+        PennDraw.setPenColor(PennDraw.WHITE);
+        PennDraw.text(0.5, 0.5, "Out of moves. You lose.");
+        printMovesMade(board);
+    }
+}
@@ -0,0 +1,27 @@
+/**
+ * Execution: java CornerPolicy
+ *
+ * Program Description: MovePolicy that keeps the largest tiles in the bottom
+ * left corner by always pressing the first valid key in the order S, A, D, W.
+ */
+
+public class CornerPolicy implements MovePolicy
+{
+    // Keys in order of preference
+    private static final char[] KEYS = {'s', 'a', 'd', 'w'};
+
+    /**
+     * Input: Board board
+     * Output: char
+     * Description: Returns the most preferred valid key for the input Board.
+     */
+    public char nextMove(Board board) {
+        for (char key : KEYS) {
+            if (board.validKey(key)) {
+                return key;
+            }
+        }
+
+        return KEYS[0];
+    }
+}
@@ -0,0 +1,382 @@
+/**
+ * Execution: java ExpectimaxPolicy [games] [seed] [tableSize]
+ *
+ * Program Description: MovePolicy that chooses moves with an expectimax search
+ * over the packed board. Max nodes try each of W, A, S and D, and chance nodes
+ * average over a 2 or 4 tile spawning in every empty cell. The search goes
+ * deeper as the board fills up, and leaves are scored with a heuristic built
+ * from monotonicity, smoothness, empty cells and available merges.
+ *
+ * Running it plays games headless and prints the win rate together with the
+ * search speed in moves and nodes per second. A tableSize above 0 caches
+ * search results in a TranspositionTable and also prints its counters.
+ */
+
+import java.util.SplittableRandom;
+
+public class ExpectimaxPolicy implements MovePolicy
+{
+    // Probability that a spawned tile is a 2, matching Board.addTile
+    static final float SPAWN_TWO_PROBABILITY = 0.5f;
+
+    // Chance branches less likely than this are scored without searching
+    // deeper
+    private static final float MIN_PROBABILITY = 0.0001f;
+
+    // Heuristic weights
+    private static final float LOST_PENALTY = 200000f;
+    private static final float MONOTONICITY_POWER = 4f;
+    private static final float MONOTONICITY_WEIGHT = 47f;
+    private static final float SUM_POWER = 3.5f;
+    private static final float SUM_WEIGHT = 11f;
+    private static final float MERGES_WEIGHT = 700f;
+    private static final float EMPTY_WEIGHT = 270f;
+    private static final float SMOOTHNESS_WEIGHT = 10f;
+
+    // Heuristic score of every possible 16-bit row
+    private static final float[] ROW_HEURISTIC = new float[65536];
+
+    // Score of a lost board: no board still in play scores lower. Row
+    // heuristics can be negative, so this is not 0
+    static final float LOST_SCORE;
+
+    private TranspositionTable table;   // Cache of chance node results,
+                                        // null if searches are not cached
+    private long nodes;         // Search nodes visited
+    private long moves;         // Moves chosen
+    private long searchNanos;   // Time spent choosing moves
+
+    // Precompute the heuristic of every row once
+    static {
+        int[] line = new int[4];
+
+        for (int row = 0; row < 65536; row++) {
+            for (int j = 0; j < 4; j++) {
+                line[j] = (row >>> (4 * j)) & 0xF;
+            }
+
+            float sum = 0;
+            int empty = 0;
+            int merges = 0;
+            int previous = 0;
+            int counter = 0;
+
+            for (int j = 0; j < 4; j++) {
+                sum += (float) Math.pow(line[j], SUM_POWER);
+
+                if (line[j] == 0) {
+                    empty++;
+                }
+                else {
+                    if (previous == line[j]) {
+                        counter++;
+                    }
+                    else if (counter > 0) {
+                        merges += 1 + counter;
+                        counter = 0;
+                    }
+                    previous = line[j];
+                }
+            }
+
+            if (counter > 0) {
+                merges += 1 + counter;
+            }
+
+            float monotonicityLeft = 0;
+            float monotonicityRight = 0;
+            float smoothness = 0;
+
+            for (int j = 1; j < 4; j++) {
+                float before = (float) Math.pow(line[j - 1], MONOTONICITY_POWER);
+                float after = (float) Math.pow(line[j], MONOTONICITY_POWER);
+
+                if (line[j - 1] > line[j]) {
+                    monotonicityLeft += before - after;
+                }
+                else {
+                    monotonicityRight += after - before;
+                }
+
+                // Neighbouring tiles of similar size are easier to merge
+                if (line[j - 1] != 0 && line[j] != 0) {
+                    smoothness += Math.abs(line[j - 1] - line[j]);
+                }
+            }
+
+            ROW_HEURISTIC[row] = LOST_PENALTY + EMPTY_WEIGHT * empty +
+                MERGES_WEIGHT * merges - SUM_WEIGHT * sum -
+                MONOTONICITY_WEIGHT * Math.min(monotonicityLeft, monotonicityRight) -
+                SMOOTHNESS_WEIGHT * smoothness;
+        }
+
+        // A board's score is the sum of its 4 rows and 4 columns
+        float lowest = ROW_HEURISTIC[0];
+        for (float score : ROW_HEURISTIC) {
+            lowest = Math.min(lowest, score);
+        }
+        LOST_SCORE = 8 * lowest;
+    }
+
+    /**
+     * Input: none
+     * Output: none
+     * Description: Constructor that creates a policy that does not cache search
+     * results.
+     */
+    public ExpectimaxPolicy() {
+        this(null);
+    }
+
+    /**
+     * Input: TranspositionTable table
+     * Output: none
+     * Description: Constructor that creates a policy that caches chance node
+     * results in the input table. The table can be kept across moves and
+     * games, since entries depend only on the position.
+     */
+    public ExpectimaxPolicy(TranspositionTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Input: Board board
+     * Output: char
+     * Description: Returns the key with the highest expected score.
+     */
+    public char nextMove(Board board) {
+        return bestMove(board.getState());
+    }
+
+    /**
+     * Input: long board
+     * Output: char
+     * Description: Searches the packed board and returns the key with the
+     * highest expected score, or 0 if no key moves.
+     */
+    public char bestMove(long board) {
+        return bestMove(board, depthFor(board));
+    }
+
+    /**
+     * Input: long board, int depth
+     * Output: char
+     * Description: Searches the packed board the input number of moves ahead
+     * and returns the key with the highest expected score, or 0 if no key moves.
+     */
+    public char bestMove(long board, int depth) {
+        long start = System.nanoTime();
+
+        char best = 0;
+        float bestScore = Float.NEGATIVE_INFINITY;
+
+        for (char key : BitBoard.KEYS) {
+            long next = BitBoard.move(board, key);
+
+            if (next != board) {
+                float score = chance(next, depth - 1, 1f);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = key;
+                }
+            }
+        }
+
+        moves++;
+        searchNanos += System.nanoTime() - start;
+        return best;
+    }
+
+    /**
+     * Input: long board
+     * Output: int
+     * Description: Returns the number of moves to look ahead. Crowded boards
+     * have fewer spawn branches and more ways to lose, so they are searched
+     * deeper.
+     */
+    public static int depthFor(long board) {
+        int empty = BitBoard.countEmpty(board);
+
+        if (empty >= 8) {
+            return 2;
+        }
+        else if (empty >= 4) {
+            return 3;
+        }
+
+        return 4;
+    }
+
+    /**
+     * Input: long board, int depth, float probability
+     * Output: float
+     * Description: Chance node: returns the expected score of the board over
+     * every tile that can spawn next. probability is the chance of reaching
+     * this node from the root.
+     */
+    private float chance(long board, int depth, float probability) {
+        nodes++;
+
+        long empty = BitBoard.emptyCells(board);
+        int count = Long.bitCount(empty);
+
+        if (depth == 0 || count == 0 || probability < MIN_PROBABILITY) {
+            return evaluate(board);
+        }
+
+        // The heuristic is the same for every rotation and reflection, so all
+        // of them share one table entry
+        long key = 0;
+
+        if (table != null) {
+            key = BitBoard.canonical(board);
+            float cached = table.get(key, depth);
+            if (!Float.isNaN(cached)) {
+                return cached;
+            }
+        }
+
+        float twoProbability = probability * SPAWN_TWO_PROBABILITY / count;
+        float fourProbability = probability * (1 - SPAWN_TWO_PROBABILITY) / count;
+        float sum = 0;
+
+        while (empty != 0) {
+            // Lowest bit of the empty cell's nibble, i.e. exponent 1 there
+            long two = empty & -empty;
+
+            sum += SPAWN_TWO_PROBABILITY * max(board | two, depth, twoProbability);
+            sum += (1 - SPAWN_TWO_PROBABILITY) *
+                   max(board | (two << 1), depth, fourProbability);
+
+            empty &= empty - 1;
+        }
+
+        float score = sum / count;
+
+        if (table != null) {
+            table.put(key, depth, score);
+        }
+
+        return score;
+    }
+
+    /**
+     * Input: long board, int depth, float probability
+     * Output: float
+     * Description: Max node: returns the score of the best move from the board,
+     * or LOST_SCORE if no move is possible (the game is lost). Package-private
+     * so ParallelSearch can run subtrees on its workers.
+     */
+    float max(long board, int depth, float probability) {
+        nodes++;
+
+        float best = Float.NEGATIVE_INFINITY;
+
+        for (char key : BitBoard.KEYS) {
+            long next = BitBoard.move(board, key);
+
+            if (next != board) {
+                best = Math.max(best, chance(next, depth - 1, probability));
+            }
+        }
+
+        return (best == Float.NEGATIVE_INFINITY) ? LOST_SCORE : best;
+    }
+
+    /**
+     * Input: long board
+     * Output: float
+     * Description: Returns the heuristic score of the board, summed over its
+     * rows and columns.
+     */
+    public static float evaluate(long board) {
+        long transposed = BitBoard.transpose(board);
+        float score = 0;
+
+        for (int i = 0; i < 4; i++) {
+            score += ROW_HEURISTIC[BitBoard.getRow(board, i)];
+            score += ROW_HEURISTIC[BitBoard.getRow(transposed, i)];
+        }
+
+        return score;
+    }
+
+    /**
+     * Input: none
+     * Output: TranspositionTable
+     * Description: Getter method that returns the table search results are
+     * cached in, or null if there is none.
+     */
+    public TranspositionTable getTable() {
+        return this.table;
+    }
+
+    /**
+     * Input: none
+     * Output: long
+     * Description: Getter method that returns the number of search nodes visited.
+     */
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Input: none
+     * Output: long
+     * Description: Getter method that returns the number of moves chosen.
+     */
+    public long getMoves() {
+        return this.moves;
+    }
+
+    /**
+     * Input: none
+     * Output: double
+     * Description: Returns the number of search nodes visited per second of
+     * search time.
+     */
+    public double getNodesPerSecond() {
+        return (searchNanos == 0) ? 0 : nodes * 1e9 / searchNanos;
+    }
+
+    /**
+     * Input: none
+     * Output: double
+     * Description: Returns the number of moves chosen per second of search time.
+     */
+    public double getMovesPerSecond() {
+        return (searchNanos == 0) ? 0 : moves * 1e9 / searchNanos;
+    }
+
+    public static void main(String[] args)
+    {
+        int games = (args.length > 0) ? Integer.parseInt(args[0]) : 10;
+        long seed = (args.length > 1) ? Long.parseLong(args[1]) : System.nanoTime();
+        int tableSize = (args.length > 2) ? Integer.parseInt(args[2]) : 0;
+
+        SplittableRandom master = new SplittableRandom(seed);
+        ExpectimaxPolicy policy = new ExpectimaxPolicy(
+            (tableSize > 0) ? new TranspositionTable(tableSize) : null);
+        int wins = 0;
+
+        for (int g = 0; g < games; g++) {
+            Board board = new Board(new SplittableRandom(master.nextLong()));
+            Simulator.playGame(policy, board);
+            if (board.winChecker()) {
+                wins++;
+            }
+        }
+
+        System.out.printf("Seed: %d  Games: %d  Wins: %d%n", seed, games, wins);
+        System.out.printf("Moves: %d  Moves/second: %.1f  Nodes/second: %.0f%n",
+                          policy.getMoves(), policy.getMovesPerSecond(),
+                          policy.getNodesPerSecond());
+
+        TranspositionTable table = policy.getTable();
+        if (table != null) {
+            System.out.printf("Table hit rate: %.3f  Occupancy: %.3f  Evictions: %d%n",
+                              table.getHitRate(), table.getOccupancy(),
+                              table.getEvictions());
+        }
+    }
+}
@@ -1,16 +1,40 @@
 /**
- * Execution: java Game2048
+ * Execution: java Game2048 [ai]
  *
- * Program Description: Runs Board and Tile to execute a 2048 game. Use WASD to move.
+ * Program Description: Runs Board and Tile to execute a 2048 game. Use WASD to move
+ * and H for a hint, U to undo a move and R to redo it, or pass "ai" to watch the game
+ * play itself with ExpectimaxPolicy.
+ *
+ * While a person is playing, the game loop sleeps until a key is typed and
+ * only draws again after it, so an idle game window uses almost no processor
+ * time. Watching the AI play draws a frame per move at up to 240 frames per
+ * second.
  */
 
 public class Game2048
 {
+    // Positions kept for undo
+    private static final int UNDO_LIMIT = 256;
+
+    // Longest time the game loop sleeps waiting for a key before drawing a
+    // frame anyway, in milliseconds
+    private static final long KEY_WAIT_MILLIS = 250;
+
     private static Board board = new Board();
 
     // Has the game ended?
     private static boolean gameActive = true;
 
+    // Chooses moves instead of the keyboard when the game plays itself
+    private static MovePolicy autoPlayer = null;
+
+    // Searches for hints, created on the first request. Its table is kept for
+    // the whole game so later hints reuse earlier searches.
+    private static ExpectimaxPolicy hinter = null;
+
+    // Suggested key for the current position, 0 if none was asked for
+    private static char hint = 0;
+
     /**
      * Input: none
      * Output: none
@@ -94,35 +118,100 @@ public class Game2048
 
     public static void main(String[] args) throws InterruptedException
     {
+        if (args.length > 0 && args[0].equals("ai")) {
+            autoPlayer = new ExpectimaxPolicy();
+        }
+
+        board.enableUndo(UNDO_LIMIT);
+
         setParameters();
         drawWelcomeScreen();
 
         PennDraw.enableAnimation(240);
 
+        // Board and hint currently on screen
+        long drawnState = 0;
+        char drawnHint = 0;
+        boolean firstFrame = true;
+
         while (gameActive) {
 
-            drawBackground();
-            board.draw();
+            // Draws everything on the first frame or when the hint changes,
+            // otherwise only the cells that changed since the last frame
+            boolean fullFrame = firstFrame || hint != drawnHint;
+            firstFrame = false;
+
+            if (fullFrame) {
+                drawBackground();
+                BoardRenderer.draw(board);
+
+                if (hint != 0) {
+                    BoardRenderer.drawHint(hint);
+                }
+            }
+            else {
+                BoardRenderer.drawChanged(board, drawnState);
+            }
+
+            drawnState = board.getState();
+            drawnHint = hint;
 
             // Checks to see if player has won
             if (board.winChecker()) {
                 gameActive = false;
-                board.winDrawing();
+                BoardRenderer.winDrawing(board);
+                fullFrame = true;
             }
 
             // Checks to see if player has lost
             else if (board.lossChecker()) {
                 gameActive = false;
-                board.loseDrawing();
+                BoardRenderer.loseDrawing(board);
+                fullFrame = true;
             }
 
-            // Processes next move
-            else if (PennDraw.hasNextKeyTyped() && gameActive) {
-                char key = PennDraw.nextKeyTyped();
-                board.move(key);
+            // Shows the frame before waiting for input. An unchanged frame
+            // marks nothing, so nothing is copied
+            if (fullFrame) {
+                PennDraw.advance();
+            }
+            else {
+                PennDraw.advanceDirty();
+            }
+
+            if (!gameActive) {
+                break;
+            }
+
+            // Lets the AI choose the next move
+            if (autoPlayer != null) {
+                board.move(autoPlayer.nextMove(board));
             }
 
-            PennDraw.advance();
+            // Sleeps until a key is typed instead of polling every frame
+            else if (PennDraw.waitForKeyTyped(KEY_WAIT_MILLIS)) {
+                char key = PennDraw.nextKeyTyped();
+
+                // H = hint
+                if (key == 'h') {
+                    if (hinter == null) {
+                        hinter = new ExpectimaxPolicy(new TranspositionTable(1 << 20));
+                    }
+                    hint = hinter.bestMove(board.getState());
+                }
+
+                // U = undo, R = redo
+                else if (key == 'u' || key == 'r') {
+                    boolean changed = (key == 'u') ? board.undo() : board.redo();
+                    if (changed) {
+                        hint = 0;
+                    }
+                }
+                else if (board.validKey(key)) {
+                    board.move(key);
+                    hint = 0;
+                }
+            }
         }
     }
 }
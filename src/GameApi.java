@@ -0,0 +1,380 @@
+/**
+ * Execution: java GameApi [port]
+ *
+ * Program Description: Local HTTP/JSON interface for playing games from other
+ * tools. Listens on the loopback address only.
+ *
+ *   POST   /games?seed=N         create a game (seed optional)
+ *   GET    /games/{id}           fetch the board
+ *   POST   /games/{id}/moves     apply a batch of keys, body {"keys": "wasd..."}
+ *   DELETE /games/{id}           discard a game
+ *
+ * Every successful call returns the game as JSON: its id, the tile values with
+ * rows listed top to bottom as drawn, the packed state, the score, the number
+ * of moves made and whether the game is won or lost. A batch of keys is applied in
+ * order in one request, stopping early if the game ends; keys that do not move
+ * any tile are skipped. Requests are handled on virtual threads, and a game is
+ * only locked while its keys are applied, never while a response is sent, so
+ * slow clients do not hold up other requests.
+ */
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class GameApi
+{
+    // Default port to listen on
+    private static final int DEFAULT_PORT = 8048;
+
+    // Largest request body accepted, in bytes
+    private static final int MAX_BODY = 1 << 16;
+
+    private HttpServer server;                          // Underlying server
+    private ConcurrentHashMap<Long, Board> games =
+        new ConcurrentHashMap<Long, Board>();           // Open games by id
+    private AtomicLong nextId = new AtomicLong();       // Next game id
+    private SplittableRandom seeds = new SplittableRandom();    // Seeds for
+                                                        // games created without one
+
+    /**
+     * Input: int port
+     * Output: none
+     * Description: Constructor that creates the API bound to the loopback
+     * address on the input port. Call start to begin serving.
+     */
+    public GameApi(int port) throws IOException {
+        server = HttpServer.create(
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/games", this::handle);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * Input: none
+     * Output: none
+     * Description: Starts serving requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Input: none
+     * Output: none
+     * Description: Stops serving requests.
+     */
+    public void stop() {
+        server.stop(0);
+    }
+
+    /**
+     * Input: none
+     * Output: int
+     * Description: Returns the port the API is listening on.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Input: HttpExchange exchange
+     * Output: none
+     * Description: Routes a request under /games and sends the response.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            // The context matches any path starting with "/games", so check
+            // every segment; -1 keeps empty segments such as a trailing "/"
+            String[] parts = exchange.getRequestURI().getPath().split("/", -1);
+            String allowed = allowedMethods(parts);
+
+            if (allowed == null) {
+                send(exchange, 404, error("not found"));
+            }
+            else if (!Arrays.asList(allowed.split(", ")).contains(method)) {
+                exchange.getResponseHeaders().set("Allow", allowed);
+                send(exchange, 405, error("method not allowed"));
+            }
+            else if (parts.length == 2) {
+                createGame(exchange);
+            }
+            else {
+                long id = Long.parseLong(parts[2]);
+                Board board = games.get(id);
+
+                if (board == null) {
+                    send(exchange, 404, error("no game " + id));
+                }
+                else if (parts.length == 4) {
+                    applyMoves(exchange, id, board);
+                }
+                else if (method.equals("GET")) {
+                    String json;
+                    synchronized (board) {
+                        json = toJson(id, board, 0);
+                    }
+                    send(exchange, 200, json);
+                }
+                else {
+                    games.remove(id);
+                    send(exchange, 204, null);
+                }
+            }
+        }
+        catch (NumberFormatException e) {
+            send(exchange, 400, error("bad number"));
+        }
+        catch (IllegalArgumentException e) {
+            send(exchange, 400, error(e.getMessage()));
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Input: String[] parts
+     * Output: String
+     * Description: Returns the methods, comma separated as in an Allow header,
+     * that the input path segments accept: "/games", "/games/{id}" or
+     * "/games/{id}/moves". Returns null for any other path.
+     */
+    private static String allowedMethods(String[] parts) {
+        if (parts.length < 2 || parts.length > 4 || !parts[0].isEmpty() ||
+            !parts[1].equals("games")) {
+            return null;
+        }
+        for (int k = 2; k < parts.length; k++) {
+            if (parts[k].isEmpty()) {
+                return null;
+            }
+        }
+
+        if (parts.length == 3) {
+            return "GET, DELETE";
+        }
+        if (parts.length == 4 && !parts[3].equals("moves")) {
+            return null;
+        }
+        return "POST";
+    }
+
+    /**
+     * Input: String query, String name
+     * Output: String
+     * Description: Returns the decoded value of the named parameter in the
+     * input raw query string, or null if it is not there. Throws
+     * IllegalArgumentException if the query has a bad escape.
+     */
+    private static String queryParameter(String query, String name) {
+        if (query == null) {
+            return null;
+        }
+
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = (equals < 0) ? pair : pair.substring(0, equals);
+            String value = (equals < 0) ? "" : pair.substring(equals + 1);
+
+            if (URLDecoder.decode(key, StandardCharsets.UTF_8).equals(name)) {
+                return URLDecoder.decode(value, StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Input: HttpExchange exchange
+     * Output: none
+     * Description: Creates a game, seeded from the seed query parameter if one
+     * was given.
+     */
+    private void createGame(HttpExchange exchange) throws IOException {
+        long seed;
+        String seedParameter = queryParameter(exchange.getRequestURI().getRawQuery(), "seed");
+
+        if (seedParameter != null) {
+            seed = Long.parseLong(seedParameter);
+        }
+        else {
+            synchronized (seeds) {
+                seed = seeds.nextLong();
+            }
+        }
+
+        long id = nextId.getAndIncrement();
+        Board board = new Board(new SplittableRandom(seed));
+        games.put(id, board);
+
+        send(exchange, 201, toJson(id, board, 0));
+    }
+
+    /**
+     * Input: HttpExchange exchange, long id, Board board
+     * Output: none
+     * Description: Applies the keys in the request body to the game in order.
+     */
+    private void applyMoves(HttpExchange exchange, long id, Board board)
+        throws IOException
+    {
+        String keys = parseKeys(readBody(exchange));
+        String json;
+
+        // Only build the response under the lock; sending it could block
+        synchronized (board) {
+            int applied = 0;
+
+            for (int k = 0; k < keys.length(); k++) {
+                if (board.winChecker() || board.lossChecker()) {
+                    break;
+                }
+
+                char key = keys.charAt(k);
+                if (board.validKey(key)) {
+                    board.move(key);
+                    applied++;
+                }
+            }
+
+            json = toJson(id, board, applied);
+        }
+
+        send(exchange, 200, json);
+    }
+
+    /**
+     * Input: String body
+     * Output: String
+     * Description: Returns the value of the "keys" string in a JSON body.
+     * Throws IllegalArgumentException if there is none or it holds anything
+     * but w, a, s and d.
+     */
+    public static String parseKeys(String body) {
+        int name = body.indexOf("\"keys\"");
+        int colon = (name < 0) ? -1 : body.indexOf(':', name + 6);
+        int open = (colon < 0) ? -1 : body.indexOf('"', colon + 1);
+        int close = (open < 0) ? -1 : body.indexOf('"', open + 1);
+
+        if (close < 0) {
+            throw new IllegalArgumentException("body must be {\"keys\": \"wasd...\"}");
+        }
+
+        String keys = body.substring(open + 1, close);
+
+        for (int k = 0; k < keys.length(); k++) {
+            char key = keys.charAt(k);
+            if (key != 'w' && key != 'a' && key != 's' && key != 'd') {
+                throw new IllegalArgumentException("keys must be w, a, s or d");
+            }
+        }
+
+        return keys;
+    }
+
+    /**
+     * Input: HttpExchange exchange
+     * Output: String
+     * Description: Reads the request body as UTF-8, up to MAX_BODY bytes.
+     */
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY + 1);
+            if (body.length > MAX_BODY) {
+                throw new IllegalArgumentException("body too large");
+            }
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Input: long id, Board board, int applied
+     * Output: String
+     * Description: Returns the game as a JSON object. applied is the number of
+     * keys from the last batch that moved tiles.
+     */
+    public static String toJson(long id, Board board, int applied) {
+        StringBuilder json = new StringBuilder(256);
+
+        json.append("{\"id\":").append(id).append(",\"board\":[");
+
+        // Top row first, as drawn
+        for (int i = 3; i >= 0; i--) {
+            json.append('[');
+            for (int j = 0; j < 4; j++) {
+                json.append(board.getValue(i, j));
+                if (j < 3) {
+                    json.append(',');
+                }
+            }
+            json.append(']');
+            if (i > 0) {
+                json.append(',');
+            }
+        }
+
+        json.append("],\"state\":\"").append(Long.toHexString(board.getState()))
+            .append("\",\"score\":").append(board.getScore())
+            .append(",\"moves\":").append(board.getNumMoves())
+            .append(",\"applied\":").append(applied)
+            .append(",\"won\":").append(board.winChecker())
+            .append(",\"lost\":").append(board.lossChecker())
+            .append('}');
+
+        return json.toString();
+    }
+
+    /**
+     * Input: String message
+     * Output: String
+     * Description: Returns a JSON error object with the input message.
+     */
+    private static String error(String message) {
+        return "{\"error\":\"" + message.replace("\"", "\\\"") + "\"}";
+    }
+
+    /**
+     * Input: HttpExchange exchange, int status, String json
+     * Output: none
+     * Description: Sends the response with the input status and JSON body, or
+     * no body if json is null.
+     */
+    private static void send(HttpExchange exchange, int status, String json)
+        throws IOException
+    {
+        if (json == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        int port = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+
+        GameApi api = new GameApi(port);
+        api.start();
+
+        System.out.println("Listening on http://localhost:" + api.getPort() + "/games");
+    }
+}
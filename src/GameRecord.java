@@ -0,0 +1,114 @@
+/**
+ * Execution: java GameRecord
+ *
+ * Program Description: Layout of the binary game record format written by
+ * GameRecordWriter and read by GameRecordReader.
+ *
+ * A record file starts with the 4-byte magic number "2048" and a version byte,
+ * followed by any number of games. Each game is:
+ *
+ *   seed           8 bytes, big-endian
+ *   final board    8 bytes, the packed state the game ended on
+ *   score          4 bytes, the game's final score
+ *   move count     unsigned varint (7 bits per byte, low bits first)
+ *   first tile     1 spawn byte
+ *   second tile    1 spawn byte
+ *   moves          1 byte per move
+ *
+ * A spawn byte holds the spawned tile's cell (4 * i + j) in bits 1-4 and its
+ * value in bit 0 (0 for a 2, 1 for a 4). A move byte is a spawn byte for the
+ * tile added after the move, with the key in bits 5-6 (0 = W, 1 = A, 2 = S,
+ * 3 = D). Storing spawns as well as the seed lets a game be replayed without
+ * the random number generator that first played it, and storing the final
+ * board and score lets a replay be checked against the engine that recorded
+ * it.
+ */
+
+public class GameRecord
+{
+    // "2048" in ASCII
+    public static final int MAGIC = 0x32303438;
+
+    // Current format version
+    public static final int VERSION = 3;
+
+    // Bytes before each game's move count: seed, final board and score
+    public static final int GAME_PREFIX_SIZE = 20;
+
+    /**
+     * Input: int cell, int exponent
+     * Output: byte
+     * Description: Returns the spawn byte for a tile of the input exponent (1 or
+     * 2) added at the input cell.
+     */
+    public static byte encodeSpawn(int cell, int exponent) {
+        if (cell < 0 || cell > 15 || exponent < 1 || exponent > 2) {
+            throw new IllegalArgumentException("not a spawn: cell " + cell +
+                                               ", exponent " + exponent);
+        }
+        return (byte) ((cell << 1) | (exponent - 1));
+    }
+
+    /**
+     * Input: char key, int cell, int exponent
+     * Output: byte
+     * Description: Returns the move byte for the input key followed by a tile
+     * of the input exponent spawning at the input cell.
+     */
+    public static byte encodeMove(char key, int cell, int exponent) {
+        return (byte) ((keyCode(key) << 5) | encodeSpawn(cell, exponent));
+    }
+
+    /**
+     * Input: char key
+     * Output: int
+     * Description: Returns the 2-bit code of a WASD key: its index in
+     * BitBoard.KEYS.
+     */
+    public static int keyCode(char key) {
+        for (int k = 0; k < BitBoard.KEYS.length; k++) {
+            if (BitBoard.KEYS[k] == key) {
+                return k;
+            }
+        }
+        throw new IllegalArgumentException("not a move key: " + key);
+    }
+
+    /**
+     * Input: byte move
+     * Output: char
+     * Description: Returns the key stored in a move byte.
+     */
+    public static char keyOf(byte move) {
+        return BitBoard.KEYS[(move >>> 5) & 0x3];
+    }
+
+    /**
+     * Input: byte spawn
+     * Output: int
+     * Description: Returns the cell stored in a spawn or move byte.
+     */
+    public static int spawnCellOf(byte spawn) {
+        return (spawn >>> 1) & 0xF;
+    }
+
+    /**
+     * Input: byte spawn
+     * Output: int
+     * Description: Returns the tile exponent stored in a spawn or move byte.
+     */
+    public static int spawnExponentOf(byte spawn) {
+        return (spawn & 0x1) + 1;
+    }
+
+    /**
+     * Input: long board, byte spawn
+     * Output: long
+     * Description: Returns the packed board with the tile from a spawn or move
+     * byte added.
+     */
+    public static long applySpawn(long board, byte spawn) {
+        int cell = spawnCellOf(spawn);
+        return BitBoard.setExponent(board, cell / 4, cell % 4, spawnExponentOf(spawn));
+    }
+}
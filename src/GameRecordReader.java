@@ -0,0 +1,198 @@
+/**
+ * Execution: java GameRecordReader [file]
+ *
+ * Program Description: Reads games in the GameRecord format one at a time
+ * from a stream. next() advances to the following game, whose seed, starting
+ * position and moves can then be read until next() is called again. The move
+ * array is reused between games.
+ *
+ * Running it prints a summary of every game in a record file.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class GameRecordReader implements Closeable
+{
+    private InputStream in;                     // Buffered input
+    private long seed;                          // Current game's seed
+    private long initialState;                  // Current game's start
+    private long finalState;                    // Current game's end
+    private int score;                          // Current game's score
+    private byte[] moves = new byte[1024];      // Current game's moves
+    private int moveCount;                      // Moves used in moves
+
+    /**
+     * Input: InputStream in
+     * Output: none
+     * Description: Constructor that creates a reader on the input stream and
+     * checks the file header.
+     */
+    public GameRecordReader(InputStream in) throws IOException {
+        this.in = new BufferedInputStream(in, 1 << 16);
+
+        int magic = 0;
+        for (int k = 0; k < 4; k++) {
+            magic = (magic << 8) | readByte();
+        }
+        if (magic != GameRecord.MAGIC) {
+            throw new IOException("not a game record file");
+        }
+
+        int version = readByte();
+        if (version != GameRecord.VERSION) {
+            throw new IOException("unsupported record version " + version);
+        }
+    }
+
+    /**
+     * Input: none
+     * Output: boolean
+     * Description: Advances to the next game. Returns false if there are no
+     * more games.
+     */
+    public boolean next() throws IOException {
+        int first = in.read();
+        if (first < 0) {
+            return false;
+        }
+
+        seed = first;
+        for (int k = 1; k < 8; k++) {
+            seed = (seed << 8) | readByte();
+        }
+
+        finalState = 0;
+        for (int k = 0; k < 8; k++) {
+            finalState = (finalState << 8) | readByte();
+        }
+
+        score = 0;
+        for (int k = 0; k < 4; k++) {
+            score = (score << 8) | readByte();
+        }
+
+        // Move count, 7 bits at a time
+        moveCount = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = readByte();
+            moveCount |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+
+        initialState = GameRecord.applySpawn(0, (byte) readByte());
+        initialState = GameRecord.applySpawn(initialState, (byte) readByte());
+
+        if (moveCount > moves.length) {
+            moves = new byte[Math.max(moveCount, 2 * moves.length)];
+        }
+        if (in.readNBytes(moves, 0, moveCount) != moveCount) {
+            throw new EOFException("record cut short");
+        }
+
+        return true;
+    }
+
+    /**
+     * Input: none
+     * Output: long
+     * Description: Getter method that returns the current game's seed.
+     */
+    public long getSeed() {
+        return this.seed;
+    }
+
+    /**
+     * Input: none
+     * Output: long
+     * Description: Getter method that returns the current game's packed
+     * starting position.
+     */
+    public long getInitialState() {
+        return this.initialState;
+    }
+
+    /**
+     * Input: none
+     * Output: long
+     * Description: Getter method that returns the packed board the current
+     * game ended on.
+     */
+    public long getFinalState() {
+        return this.finalState;
+    }
+
+    /**
+     * Input: none
+     * Output: int
+     * Description: Getter method that returns the current game's final score.
+     */
+    public int getScore() {
+        return this.score;
+    }
+
+    /**
+     * Input: none
+     * Output: int
+     * Description: Getter method that returns the current game's number of
+     * moves.
+     */
+    public int getMoveCount() {
+        return this.moveCount;
+    }
+
+    /**
+     * Input: int k
+     * Output: byte
+     * Description: Returns the k-th move byte of the current game.
+     */
+    public byte getMove(int k) {
+        if (k < 0 || k >= moveCount) {
+            throw new IndexOutOfBoundsException("move " + k + " of " + moveCount);
+        }
+        return moves[k];
+    }
+
+    /**
+     * Input: none
+     * Output: none
+     * Description: Closes the input.
+     */
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private int readByte() throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("record cut short");
+        }
+        return b;
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        String file = (args.length > 0) ? args[0] : "games.rec";
+
+        try (GameRecordReader reader = new GameRecordReader(new FileInputStream(file))) {
+            long games = 0;
+            long moves = 0;
+            long score = 0;
+
+            while (reader.next()) {
+                games++;
+                moves += reader.getMoveCount();
+                score += reader.getScore();
+            }
+
+            System.out.printf("Games: %d  Moves: %d  Average moves: %.1f  Average score: %.1f%n",
+                              games, moves, (double) moves / games, (double) score / games);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/**
+ * Execution: java GameRecordWriter
+ *
+ * Program Description: Streams games to an output in the GameRecord format.
+ * Bytes are gathered in a fixed buffer and written out in large blocks, and a
+ * game's moves are kept in a reusable array until the game ends, so recording
+ * a move never allocates.
+ *
+ * Usage: beginGame with the seed and starting Board, recordMove after every
+ * move, then endGame with the final board and score. Not thread-safe; give each thread its own writer.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+public class GameRecordWriter implements Closeable
+{
+    // Bytes gathered before each write to the underlying output
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private OutputStream out;                   // Underlying output
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;                       // Bytes used in buffer
+
+    private byte[] moves = new byte[1024];      // Moves of the current game
+    private int moveCount;                      // Moves used in moves
+    private long seed;                          // Seed of the current game
+    private byte firstSpawn;                    // Starting tiles of the
+    private byte secondSpawn;                   // current game
+    private boolean inGame;                     // Between beginGame and endGame
+
+    private long gamesWritten;                  // Games ended so far
+    private long bytesWritten;                  // Bytes written so far
+
+    /**
+     * Input: OutputStream out
+     * Output: none
+     * Description: Constructor that creates a writer on the input stream and
+     * writes the file header.
+     */
+    public GameRecordWriter(OutputStream out) throws IOException {
+        this.out = out;
+        writeInt(GameRecord.MAGIC);
+        writeByte(GameRecord.VERSION);
+    }
+
+    /**
+     * Input: long seed, long initialState
+     * Output: none
+     * Description: Starts a game with the input seed and starting position,
+     * which must hold exactly the two starting tiles.
+     */
+    public void beginGame(long seed, long initialState) {
+        if (inGame) {
+            throw new IllegalStateException("previous game not ended");
+        }
+
+        // Find the two starting tiles, lowest cell first
+        int found = 0;
+        for (int cell = 0; cell < 16; cell++) {
+            int exponent = BitBoard.getExponent(initialState, cell / 4, cell % 4);
+            if (exponent != 0) {
+                if (found == 0) {
+                    firstSpawn = GameRecord.encodeSpawn(cell, exponent);
+                }
+                else if (found == 1) {
+                    secondSpawn = GameRecord.encodeSpawn(cell, exponent);
+                }
+                found++;
+            }
+        }
+
+        if (found != 2) {
+            throw new IllegalArgumentException("starting position must have 2 tiles");
+        }
+
+        this.seed = seed;
+        this.moveCount = 0;
+        this.inGame = true;
+    }
+
+    /**
+     * Input: char key, int spawnCell, int spawnExponent
+     * Output: none
+     * Description: Adds a move of the current game: the key pressed and the
+     * tile added after it.
+     */
+    public void recordMove(char key, int spawnCell, int spawnExponent) {
+        if (!inGame) {
+            throw new IllegalStateException("no game started");
+        }
+
+        if (moveCount == moves.length) {
+            moves = Arrays.copyOf(moves, 2 * moves.length);
+        }
+
+        moves[moveCount] = GameRecord.encodeMove(key, spawnCell, spawnExponent);
+        moveCount++;
+    }
+
+    /**
+     * Input: Board board, char key
+     * Output: none
+     * Description: Adds the move just made on the input Board with the input
+     * key, taking the spawned tile from the Board.
+     */
+    public void recordMove(Board board, char key) {
+        recordMove(key, board.getLastSpawnCell(), board.getLastSpawnExponent());
+    }
+
+    /**
+     * Input: long finalState, int score
+     * Output: none
+     * Description: Ends the current game, which finished on the input packed
+     * board with the input score, and queues it for writing.
+     */
+    public void endGame(long finalState, int score) throws IOException {
+        if (!inGame) {
+            throw new IllegalStateException("no game started");
+        }
+
+        writeLong(seed);
+        writeLong(finalState);
+        writeInt(score);
+        writeVarint(moveCount);
+        writeByte(firstSpawn);
+        writeByte(secondSpawn);
+        writeBytes(moves, moveCount);
+
+        inGame = false;
+        gamesWritten++;
+    }
+
+    /**
+     * Input: none
+     * Output: none
+     * Description: Writes out all buffered bytes.
+     */
+    public void flush() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+        out.flush();
+    }
+
+    /**
+     * Input: none
+     * Output: none
+     * Description: Writes out all buffered bytes and closes the output. A game
+     * that was not ended is dropped.
+     */
+    public void close() throws IOException {
+        flush();
+        out.close();
+    }
+
+    /**
+     * Input: none
+     * Output: long
+     * Description: Getter method that returns the number of games ended.
+     */
+    public long getGamesWritten() {
+        return this.gamesWritten;
+    }
+
+    /**
+     * Input: none
+     * Output: long
+     * Description: Getter method that returns the number of bytes written,
+     * including the header and bytes still buffered.
+     */
+    public long getBytesWritten() {
+        return this.bytesWritten;
+    }
+
+    // Buffered primitive writes
+
+    private void writeByte(int value) throws IOException {
+        if (position == BUFFER_SIZE) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+        buffer[position] = (byte) value;
+        position++;
+        bytesWritten++;
+    }
+
+    private void writeInt(int value) throws IOException {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            writeByte(value >>> shift);
+        }
+    }
+
+    private void writeLong(long value) throws IOException {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            writeByte((int) (value >>> shift));
+        }
+    }
+
+    private void writeVarint(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        writeByte(value);
+    }
+
+    private void writeBytes(byte[] bytes, int length) throws IOException {
+        int offset = 0;
+
+        while (offset < length) {
+            if (position == BUFFER_SIZE) {
+                out.write(buffer, 0, position);
+                position = 0;
+            }
+
+            int chunk = Math.min(length - offset, BUFFER_SIZE - position);
+            System.arraycopy(bytes, offset, buffer, position, chunk);
+            position += chunk;
+            offset += chunk;
+        }
+
+        bytesWritten += length;
+    }
+}
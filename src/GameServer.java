@@ -0,0 +1,177 @@
+/**
+ * Execution: java GameServer [sessions] [seconds] [drivers] [seed]
+ *
+ * Program Description: Hosts many independent GameSessions in one process.
+ * Each session runs on its own virtual thread, which parks cheaply while the
+ * session waits for input, so tens of thousands of sessions can be held at
+ * once.
+ *
+ * Running it starts a local load generator: a few driver threads keep the
+ * given number of sessions open, feed them random keys, and replace sessions
+ * whose games end. It prints the sessions held and the moves applied per
+ * second.
+ */
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class GameServer
+{
+    // Keys the load generator lets queue up in one session
+    private static final int MAX_PENDING = 4;
+
+    private ConcurrentHashMap<Long, GameSession> sessions =
+        new ConcurrentHashMap<Long, GameSession>();     // Open sessions by id
+    private AtomicLong nextId = new AtomicLong();       // Next session id
+    private AtomicLong closedMoves = new AtomicLong();  // Moves made in
+                                                        // sessions whose
+                                                        // threads have ended
+    private ExecutorService threads =
+        Executors.newVirtualThreadPerTaskExecutor();    // One thread per session
+
+    /**
+     * Input: long seed
+     * Output: GameSession
+     * Description: Opens a new session whose tile spawns are drawn from the
+     * input seed and starts its thread. The session is removed, and its moves
+     * added to the closed total, once its thread ends, i.e. after its game is
+     * over or every key queued before it was closed has been applied.
+     */
+    public GameSession createSession(long seed) {
+        GameSession session = new GameSession(nextId.getAndIncrement(), seed);
+        sessions.put(session.getId(), session);
+        threads.execute(() -> {
+            session.run();
+            sessions.remove(session.getId(), session);
+            closedMoves.addAndGet(session.getNumMoves());
+        });
+        return session;
+    }
+
+    /**
+     * Input: long id
+     * Output: GameSession
+     * Description: Returns the open session with the input id, or null if there
+     * is none or its thread has ended.
+     */
+    public GameSession getSession(long id) {
+        return sessions.get(id);
+    }
+
+    /**
+     * Input: long id
+     * Output: none
+     * Description: Closes the session with the input id, if it is open. Keys
+     * already queued are still applied and counted.
+     */
+    public void closeSession(long id) {
+        GameSession session = sessions.get(id);
+
+        if (session != null) {
+            session.close();
+        }
+    }
+
+    /**
+     * Input: none
+     * Output: int
+     * Description: Returns the number of open sessions.
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Input: none
+     * Output: long
+     * Description: Returns the number of moves made in all sessions, open and
+     * closed. A session whose thread is just ending may be missed for a
+     * moment, but every move is counted once it has ended.
+     */
+    public long getMovesMade() {
+        long total = closedMoves.get();
+        for (GameSession session : sessions.values()) {
+            total += session.getNumMoves();
+        }
+        return total;
+    }
+
+    /**
+     * Input: none
+     * Output: none
+     * Description: Closes every session and waits for their threads to finish.
+     */
+    public void shutdown() {
+        for (GameSession session : sessions.values()) {
+            session.close();
+        }
+        threads.close();
+    }
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        int count = (args.length > 0) ? Integer.parseInt(args[0]) : 10000;
+        int seconds = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+        int drivers = (args.length > 2) ? Integer.parseInt(args[2])
+                                        : Runtime.getRuntime().availableProcessors();
+        long seed = (args.length > 3) ? Long.parseLong(args[3]) : System.nanoTime();
+
+        GameServer server = new GameServer();
+        SplittableRandom master = new SplittableRandom(seed);
+
+        GameSession[] slots = new GameSession[count];
+        for (int k = 0; k < count; k++) {
+            slots[k] = server.createSession(master.nextLong());
+        }
+
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        Thread[] driverThreads = new Thread[drivers];
+
+        // Driver d looks after slots d, d + drivers, ... so no two drivers
+        // share a slot
+        for (int d = 0; d < drivers; d++) {
+            int first = d;
+            SplittableRandom random = master.split();
+
+            driverThreads[d] = new Thread(() -> {
+                while (System.nanoTime() < end) {
+                    for (int k = first; k < count; k += drivers) {
+                        GameSession session = slots[k];
+
+                        if (session.isFinished()) {
+                            server.closeSession(session.getId());
+                            slots[k] = server.createSession(random.nextLong());
+                        }
+                        else if (session.pendingKeys() < MAX_PENDING) {
+                            session.submit(BitBoard.KEYS[random.nextInt(4)]);
+                        }
+                    }
+                }
+            });
+            driverThreads[d].start();
+        }
+
+        for (Thread thread : driverThreads) {
+            thread.join();
+        }
+
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        int held = server.getSessionCount();
+        long moves = server.getMovesMade();
+        long created = server.nextId.get();
+
+        Runtime runtime = Runtime.getRuntime();
+        long heapMb = (runtime.totalMemory() - runtime.freeMemory()) >> 20;
+
+        server.shutdown();
+
+        System.out.printf("Sessions held: %d  Sessions created: %d  Heap used: %d MB%n",
+                          held, created, heapMb);
+        System.out.printf("Elapsed: %.3f s  Moves/second: %.0f%n",
+                          elapsed, moves / elapsed);
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * Execution: java GameSession
+ *
+ * Program Description: One live game hosted by GameServer. A session owns its
+ * Board and is driven by a single thread that takes keys from the session's
+ * input queue and applies them in order, so the Board is never touched by two
+ * threads. The latest board state, move count and result are published for
+ * other threads to read.
+ */
+
+import java.util.SplittableRandom;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+public class GameSession implements Runnable
+{
+    // Queued after the last key to stop the session's thread. It is not a
+    // Character, so no key can be mistaken for it
+    private static final Object CLOSE = new Object();
+
+    private long id;                                // Session number
+    private Board board;                            // Only used by run()
+    private BlockingQueue<Object> inputs =
+        new LinkedBlockingQueue<Object>();          // Keys not yet applied,
+                                                    // then CLOSE
+
+    private volatile long state;                    // Latest board state
+    private volatile int numMoves;                  // Latest move count
+    private volatile boolean won;                   // Game reached 2048
+    private volatile boolean finished;              // Game won, lost or closed
+
+    /**
+     * Input: long id, long seed
+     * Output: none
+     * Description: Constructor that creates a session with a new Board whose
+     * tile spawns are drawn from the input seed.
+     */
+    public GameSession(long id, long seed) {
+        this.id = id;
+        this.board = new Board(new SplittableRandom(seed));
+        this.state = board.getState();
+    }
+
+    /**
+     * Input: none
+     * Output: none
+     * Description: Applies queued keys until the game ends or the session is
+     * closed. Meant to run on the session's own thread.
+     */
+    public void run() {
+        try {
+            while (!finished) {
+                Object input = inputs.take();
+
+                if (input == CLOSE) {
+                    break;
+                }
+
+                board.move((Character) input);
+
+                // Publish the new position
+                numMoves = board.getNumMoves();
+                state = board.getState();
+
+                if (board.winChecker()) {
+                    won = true;
+                    finished = true;
+                }
+                else if (board.lossChecker()) {
+                    finished = true;
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            finished = true;
+        }
+    }
+
+    /**
+     * Input: char key
+     * Output: boolean
+     * Description: Queues a key for the session. Returns false if the game has
+     * already ended. Throws IllegalArgumentException if the key is not one of
+     * w, a, s or d.
+     */
+    public boolean submit(char key) {
+        if (key != 'w' && key != 'a' && key != 's' && key != 'd') {
+            throw new IllegalArgumentException("not a move key: " + (int) key);
+        }
+        if (finished) {
+            return false;
+        }
+        return inputs.offer(key);
+    }
+
+    /**
+     * Input: none
+     * Output: none
+     * Description: Stops the session once the keys queued so far are applied.
+     */
+    public void close() {
+        inputs.offer(CLOSE);
+    }
+
+    /**
+     * Input: none
+     * Output: int
+     * Description: Returns the number of keys waiting to be applied.
+     */
+    public int pendingKeys() {
+        return inputs.size();
+    }
+
+    /**
+     * Input: none
+     * Output: long
+     * Description: Getter method that returns the session number.
+     */
+    public long getId() {
+        return this.id;
+    }
+
+    /**
+     * Input: none
+     * Output: long
+     * Description: Getter method that returns the latest packed board state.
+     */
+    public long getState() {
+        return this.state;
+    }
+
+    /**
+     * Input: none
+     * Output: int
+     * Description: Getter method that returns the latest number of moves made.
+     */
+    public int getNumMoves() {
+        return this.numMoves;
+    }
+
+    /**
+     * Input: none
+     * Output: boolean
+     * Description: Returns true if the game reached 2048.
+     */
+    public boolean isWon() {
+        return this.won;
+    }
+
+    /**
+     * Input: none
+     * Output: boolean
+     * Description: Returns true if the game was won, lost or closed.
+     */
+    public boolean isFinished() {
+        return this.finished;
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * Execution: java MoveHistory
+ *
+ * Program Description: Fixed-size undo/redo history for a Board. Each position
+ * is kept as a snapshot of its packed state, move count and score in a ring
+ * buffer of primitive arrays, so recording, undoing and redoing a move take
+ * constant time and never allocate. Once the buffer is full, recording a move
+ * drops the oldest position.
+ *
+ * Positions are numbered in the order they were recorded. current is the
+ * position the Board is on; positions before it can be undone to and positions
+ * after it, up to last, can be redone.
+ */
+
+public class MoveHistory
+{
+    private long[] states;          // Packed board of each position
+    private int[] numMoves;         // Move count of each position
+    private int[] scores;           // Score of each position
+    private int mask;               // Capacity - 1, to wrap positions
+
+    private long first;             // Oldest position still kept
+    private long current;           // Position the Board is on
+    private long last;              // Newest position that can be redone
+
+    /**
+     * Input: int capacity, long state, int moves, int score
+     * Output: none
+     * Description: Constructor that creates a history keeping at least the
+     * input number of positions (rounded up to a power of two), starting at
+     * the input position.
+     */
+    public MoveHistory(int capacity, long state, int moves, int score) {
+        if (capacity < 2 || capacity > (1 << 24)) {
+            throw new IllegalArgumentException("capacity must be 2 to 2^24: " + capacity);
+        }
+
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        states = new long[size];
+        numMoves = new int[size];
+        scores = new int[size];
+        mask = size - 1;
+
+        states[0] = state;
+        numMoves[0] = moves;
+        scores[0] = score;
+    }
+
+    /**
+     * Input: long state, int moves, int score
+     * Output: none
+     * Description: Records the position reached by a new move. Anything that
+     * could have been redone is discarded.
+     */
+    public void record(long state, int moves, int score) {
+        current++;
+        last = current;
+
+        if (current - first > mask) {
+            first = current - mask;
+        }
+
+        int slot = (int) (current & mask);
+        states[slot] = state;
+        numMoves[slot] = moves;
+        scores[slot] = score;
+    }
+
+    /**
+     * Input: none
+     * Output: boolean
+     * Description: Steps back one position. Returns false if there is none.
+     */
+    public boolean undo() {
+        if (current == first) {
+            return false;
+        }
+        current--;
+        return true;
+    }
+
+    /**
+     * Input: none
+     * Output: boolean
+     * Description: Steps forward to a position that was undone. Returns false
+     * if there is none.
+     */
+    public boolean redo() {
+        if (current == last) {
+            return false;
+        }
+        current++;
+        return true;
+    }
+
+    /**
+     * Input: none
+     * Output: long
+     * Description: Returns the packed board of the current position.
+     */
+    public long getState() {
+        return states[(int) (current & mask)];
+    }
+
+    /**
+     * Input: none
+     * Output: int
+     * Description: Returns the move count of the current position.
+     */
+    public int getNumMoves() {
+        return numMoves[(int) (current & mask)];
+    }
+
+    /**
+     * Input: none
+     * Output: int
+     * Description: Returns the score of the current position.
+     */
+    public int getScore() {
+        return scores[(int) (current & mask)];
+    }
+
+    /**
+     * Input: none
+     * Output: int
+     * Description: Returns the number of moves that can be undone.
+     */
+    public int undoCount() {
+        return (int) (current - first);
+    }
+
+    /**
+     * Input: none
+     * Output: int
+     * Description: Returns the number of moves that can be redone.
+     */
+    public int redoCount() {
+        return (int) (last - current);
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * Execution: java MovePolicy
+ *
+ * Program Description: Chooses the next key (w, a, s or d) to press on a
+ * Board. Used by the headless Simulator in place of keyboard input.
+ */
+
+public interface MovePolicy
+{
+    /**
+     * Input: Board board
+     * Output: char
+     * Description: Returns the next key to press. Only called while the game is
+     * still in progress, and must return a key for which board.validKey is true.
+     */
+    char nextMove(Board board);
+}
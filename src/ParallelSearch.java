@@ -0,0 +1,265 @@
+/**
+ * Execution: java ParallelSearch [positions] [parallelism] [depth] [seed]
+ *
+ * Program Description: Expectimax search that splits the root over a
+ * ForkJoinPool. Every spawn beneath each of the four root moves (a 2 or 4 in
+ * each empty cell) is searched as its own fork/join task, and all workers
+ * share one lock-free TranspositionTable. Each worker thread runs the subtree
+ * with its own ExpectimaxPolicy, so search code and node counts are shared
+ * with the single-threaded policy.
+ *
+ * Running it searches a set of mid-game positions at a fixed depth once with a
+ * parallelism of 1 and once with the given parallelism, and prints the time,
+ * nodes per second and speedup of each.
+ */
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class ParallelSearch implements MovePolicy
+{
+    private ForkJoinPool pool;                  // Workers for the subtrees
+    private TranspositionTable table;           // Shared by all workers
+    private ThreadLocal<ExpectimaxPolicy> searchers;    // One per worker
+    private ConcurrentLinkedQueue<ExpectimaxPolicy> allSearchers =
+        new ConcurrentLinkedQueue<ExpectimaxPolicy>();  // For node counts
+
+    /**
+     * Searches the subtree below a single spawned tile on a worker.
+     */
+    private class SpawnTask extends RecursiveTask<Float>
+    {
+        // ForkJoinTask is Serializable; these tasks are never serialized
+        private static final long serialVersionUID = 1L;
+
+        private long board;
+        private int depth;
+        private float probability;
+
+        SpawnTask(long board, int depth, float probability) {
+            this.board = board;
+            this.depth = depth;
+            this.probability = probability;
+        }
+
+        protected Float compute() {
+            return searchers.get().max(board, depth, probability);
+        }
+    }
+
+    /**
+     * Input: int parallelism, TranspositionTable table
+     * Output: none
+     * Description: Constructor that creates a search running on parallelism
+     * worker threads that all share the input table.
+     */
+    public ParallelSearch(int parallelism, TranspositionTable table) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.table = table;
+        this.searchers = ThreadLocal.withInitial(() -> {
+            ExpectimaxPolicy searcher = new ExpectimaxPolicy(this.table);
+            allSearchers.add(searcher);
+            return searcher;
+        });
+    }
+
+    /**
+     * Input: Board board
+     * Output: char
+     * Description: Returns the key with the highest expected score, searching as
+     * deep as ExpectimaxPolicy would.
+     */
+    public char nextMove(Board board) {
+        long state = board.getState();
+        return bestMove(state, ExpectimaxPolicy.depthFor(state));
+    }
+
+    /**
+     * Input: long board, int depth
+     * Output: char
+     * Description: Same search and result as ExpectimaxPolicy.bestMove, with
+     * the subtrees run on the pool's workers.
+     */
+    public char bestMove(long board, int depth) {
+        return pool.invoke(new RecursiveTask<Character>() {
+            protected Character compute() {
+                return searchRoot(board, depth);
+            }
+        });
+    }
+
+    /**
+     * Input: long board, int depth
+     * Output: char
+     * Description: Forks a task for every spawn below every root move, then
+     * combines the results the same way ExpectimaxPolicy's chance nodes do.
+     * Runs inside the pool.
+     */
+    private char searchRoot(long board, int depth) {
+        char[] keys = BitBoard.KEYS;
+        float two = ExpectimaxPolicy.SPAWN_TWO_PROBABILITY;
+
+        long[] after = new long[4];
+        SpawnTask[][] tasks = new SpawnTask[4][];
+
+        // Fork every subtree first so all workers have something to do
+        for (int k = 0; k < 4; k++) {
+            after[k] = BitBoard.move(board, keys[k]);
+            if (after[k] == board || depth <= 1) {
+                continue;
+            }
+
+            long empty = BitBoard.emptyCells(after[k]);
+            int count = Long.bitCount(empty);
+            tasks[k] = new SpawnTask[2 * count];
+
+            for (int c = 0; empty != 0; c++) {
+                long cell = empty & -empty;
+                tasks[k][2 * c] = new SpawnTask(after[k] | cell, depth - 1,
+                                                two / count);
+                tasks[k][2 * c + 1] = new SpawnTask(after[k] | (cell << 1),
+                                                    depth - 1, (1 - two) / count);
+                tasks[k][2 * c].fork();
+                tasks[k][2 * c + 1].fork();
+                empty &= empty - 1;
+            }
+        }
+
+        char best = 0;
+        float bestScore = Float.NEGATIVE_INFINITY;
+
+        for (int k = 0; k < 4; k++) {
+            if (after[k] == board) {
+                continue;
+            }
+
+            float score;
+
+            if (tasks[k] == null) {
+                // Nothing left to search below this move
+                score = ExpectimaxPolicy.evaluate(after[k]);
+            }
+            else {
+                float sum = 0;
+                for (int c = 0; c < tasks[k].length; c += 2) {
+                    sum += two * tasks[k][c].join();
+                    sum += (1 - two) * tasks[k][c + 1].join();
+                }
+                score = sum / (tasks[k].length / 2);
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                best = keys[k];
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Input: none
+     * Output: long
+     * Description: Returns the number of search nodes visited by all workers.
+     */
+    public long getNodes() {
+        long nodes = 0;
+        for (ExpectimaxPolicy searcher : allSearchers) {
+            nodes += searcher.getNodes();
+        }
+        return nodes;
+    }
+
+    /**
+     * Input: none
+     * Output: int
+     * Description: Returns the number of worker threads.
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Input: none
+     * Output: none
+     * Description: Stops the worker threads once running searches finish.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Input: long[] positions, int parallelism, int depth, char[] moves
+     * Output: long
+     * Description: Searches every position with a fresh table and the input
+     * parallelism, stores the chosen keys in moves, prints the timing and
+     * returns the elapsed nanoseconds.
+     */
+    private static long timeSearch(long[] positions, int parallelism, int depth,
+                                   char[] moves)
+    {
+        ParallelSearch search = new ParallelSearch(parallelism,
+                                                   new TranspositionTable(1 << 22));
+
+        long start = System.nanoTime();
+        for (int k = 0; k < positions.length; k++) {
+            moves[k] = search.bestMove(positions[k], depth);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("Parallelism %2d: %8.1f ms  Nodes/second: %.0f%n",
+                          parallelism, elapsed / 1e6, search.getNodes() * 1e9 / elapsed);
+        search.shutdown();
+        return elapsed;
+    }
+
+    public static void main(String[] args)
+    {
+        int count = (args.length > 0) ? Integer.parseInt(args[0]) : 50;
+        int parallelism = (args.length > 1) ? Integer.parseInt(args[1])
+                                            : Runtime.getRuntime().availableProcessors();
+        int depth = (args.length > 2) ? Integer.parseInt(args[2]) : 3;
+        long seed = (args.length > 3) ? Long.parseLong(args[3]) : 2048;
+
+        // Mid-game positions from CornerPolicy games
+        long[] positions = new long[count];
+        SplittableRandom random = new SplittableRandom(seed);
+        MovePolicy corner = new CornerPolicy();
+        int size = 0;
+
+        while (size < count) {
+            Board board = new Board(random.split());
+            while (size < count && !board.winChecker() && !board.lossChecker()) {
+                board.move(corner.nextMove(board));
+                int empty = BitBoard.countEmpty(board.getState());
+                if (empty >= 3 && empty <= 8 && random.nextInt(8) == 0) {
+                    positions[size] = board.getState();
+                    size++;
+                }
+            }
+        }
+
+        char[] serialMoves = new char[count];
+        char[] parallelMoves = new char[count];
+
+        // Warm up both configurations before timing
+        timeSearch(positions, 1, depth, serialMoves);
+        timeSearch(positions, parallelism, depth, parallelMoves);
+
+        System.out.println("Positions: " + count + "  Depth: " + depth);
+        long serial = timeSearch(positions, 1, depth, serialMoves);
+        long parallel = timeSearch(positions, parallelism, depth, parallelMoves);
+
+        int agree = 0;
+        for (int k = 0; k < count; k++) {
+            if (serialMoves[k] == parallelMoves[k]) {
+                agree++;
+            }
+        }
+
+        System.out.printf("Speedup: %.2fx  Same move chosen: %d/%d%n",
+                          (double) serial / parallel, agree, count);
+    }
+}
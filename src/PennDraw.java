@@ -28,8 +28,11 @@ import java.awt.geom.*;
 import java.awt.image.*;
 import java.io.*;
 import java.net.*;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.TreeSet;
+import java.util.concurrent.locks.LockSupport;
 import javax.imageio.ImageIO;
 import javax.swing.*;
 
@@ -100,14 +103,31 @@ public final class PennDraw implements ActionListener, MouseListener, MouseMotio
     // show we draw immediately or wait until next show?
     private static boolean defer = false;
 
-    // time in milliseconds (from currentTimeMillis()) when we can draw again
+    // time in ns (from nanoTime()) when we can draw again
     // used to control the frame rate
-    private static long nextDraw = -1;
+    private static long nextFrame;
 
-    // frame rate for animation mode in ms (60000 / fps)
+    // true once a frame has been shown, so nextFrame and lastFrame are set;
+    // cleared by idle() so the next frame starts a new schedule
+    private static boolean framePaced = false;
+
+    // frame period for animation mode in ns (1e9 / fps)
     // 0 to draw as soon as advance() is called
     // -1 to disable animation mode
-    private static int animationSpeed = -1;
+    private static long framePeriod = -1;
+
+    // park until this many ns before a frame is due, then spin, since
+    // parkNanos() can wake up well after it was asked to
+    private static final long SPIN_NANOS = 250000;
+
+    // frame statistics: the most recent frame times in ns, and running totals
+    private static final int FRAME_SAMPLES = 1024;
+    private static final long[] frameTimes = new long[FRAME_SAMPLES];
+    private static long frameCount;
+    private static long frameTotal;
+    private static long droppedFrames;
+    private static long lastFrame;      // nanoTime() of the last frame shown
+    private static long lastPeriod;     // period the next frame was scheduled with
     
     
     // boundary of drawing canvas, 0% border, scale factor to convert back to window coordinates
@@ -131,6 +151,23 @@ public final class PennDraw implements ActionListener, MouseListener, MouseMotio
     // current font
     private static Font font;
 
+    // fonts made by setFontSize() and the style setters, keyed by font name,
+    // style and size, so switching between the same few fonts derives nothing
+    private static HashMap<FontKey, Font> derivedFonts = new HashMap<FontKey, Font>();
+    private static FontKey fontProbe = new FontKey(null, 0, 0);
+
+    // descent and string widths of each font used by text(), and those of the
+    // current font (null until text() first needs them)
+    private static HashMap<Font, TextMetrics> textMetrics = new HashMap<Font, TextMetrics>();
+    private static TextMetrics fontMetrics;
+
+    // most string widths remembered per font before they are all forgotten
+    private static final int MAX_CACHED_WIDTHS = 1024;
+
+    // most derived fonts, and fonts with metrics, remembered before they are
+    // all forgotten
+    private static final int MAX_CACHED_FONTS = 64;
+
     // double buffered graphics
     private static BufferedImage offscreenImage, onscreenImage;
     private static Graphics2D offscreen, onscreen;
@@ -141,6 +178,12 @@ public final class PennDraw implements ActionListener, MouseListener, MouseMotio
     // the frame for drawing to the screen
     private static JFrame frame;
 
+    // the label inside the frame that shows the onscreen image
+    private static JLabel label;
+
+    // pixels drawn since the last show that advanceDirty() should copy, or null
+    private static Rectangle dirty = null;
+
     // mouse state
     private static boolean mousePressed = false;
     private static double mouseX = 0;
@@ -194,6 +237,8 @@ public final class PennDraw implements ActionListener, MouseListener, MouseMotio
         onscreenImage  = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
         offscreen = offscreenImage.createGraphics();
         onscreen  = onscreenImage.createGraphics();
+        textMetrics.clear();
+        fontMetrics = null;
         setXscale();
         setYscale();
         offscreen.setColor(DEFAULT_CLEAR_COLOR);
@@ -212,6 +257,8 @@ public final class PennDraw implements ActionListener, MouseListener, MouseMotio
         // frame stuff
         ImageIcon icon = new ImageIcon(onscreenImage);
         JLabel draw = new JLabel(icon);
+        label = draw;
+        dirty = null;
 
         draw.addMouseListener(std);
         draw.addMouseMotionListener(std);
@@ -314,6 +361,20 @@ public final class PennDraw implements ActionListener, MouseListener, MouseMotio
     private static double   userX(double x) { return xmin + x / xscale; }
     private static double   userY(double y) { return ymax - y / yscale; }
 
+    /**
+     * Get the width in pixels of a length along the x-axis in user coordinates.
+     * @param w the length in user coordinates
+     * @return the length in pixels at the current canvas size and scale
+     */
+    public static double scaledWidth(double w) { return factorX(w); }
+
+    /**
+     * Get the height in pixels of a length along the y-axis in user coordinates.
+     * @param h the length in user coordinates
+     * @return the length in pixels at the current canvas size and scale
+     */
+    public static double scaledHeight(double h) { return factorY(h); }
+
     /**
      * Clear the screen to the default color (white).
      */
@@ -488,6 +549,7 @@ public final class PennDraw implements ActionListener, MouseListener, MouseMotio
     public static void setFont(Font f) {
         font = f;
         offscreen.setFont(f);
+        fontMetrics = null;
     }
 
     /**
@@ -505,7 +567,7 @@ public final class PennDraw implements ActionListener, MouseListener, MouseMotio
      */
     public static void setFont(String fontName, double pointSize) {
         setFont(fontName);        
-        setFont(font.deriveFont((float) pointSize));
+        setFont(deriveFont(font.getStyle(), (float) pointSize));
     }
 
     /**
@@ -513,7 +575,7 @@ public final class PennDraw implements ActionListener, MouseListener, MouseMotio
      * @param pointSize the desired font size
      */
     public static void setFontSize(double pointSize) {
-        setFont(font.deriveFont((float) pointSize));
+        setFont(deriveFont(font.getStyle(), (float) pointSize));
     }
 
     /**
@@ -533,28 +595,103 @@ public final class PennDraw implements ActionListener, MouseListener, MouseMotio
      * Set the font to a plain style (no bold or italic)
      */
     public static void setFontPlain() {
-        setFont(font.deriveFont(Font.PLAIN));
+        setFont(deriveFont(Font.PLAIN, font.getSize2D()));
     }
 
     /**
      * Set the font to a bold style (no italic)
      */
     public static void setFontBold() {
-        setFont(font.deriveFont(Font.BOLD));
+        setFont(deriveFont(Font.BOLD, font.getSize2D()));
     }
 
     /**
      * Set the font to an italics style (no bold)
      */
     public static void setFontItalic() {
-        setFont(font.deriveFont(Font.ITALIC));
+        setFont(deriveFont(Font.ITALIC, font.getSize2D()));
     }
 
     /**
      * Set the font to a bold italic style
      */
     public static void setFontBoldItalic() {
-        setFont(font.deriveFont(Font.BOLD | Font.ITALIC));
+        setFont(deriveFont(Font.BOLD | Font.ITALIC, font.getSize2D()));
+    }
+
+    // the current font with the given style and size, from the cache if it was derived before
+    private static Font deriveFont(int style, float size) {
+        // fonts with transforms or layout attributes are not identified by name, style and size
+        if (font.isTransformed() || font.hasLayoutAttributes()) return font.deriveFont(style, size);
+
+        fontProbe.set(font.getName(), style, size);
+        Font f = derivedFonts.get(fontProbe);
+        if (f == null) {
+            f = font.deriveFont(style, size);
+            if (derivedFonts.size() >= MAX_CACHED_FONTS) derivedFonts.clear();
+            derivedFonts.put(new FontKey(font.getName(), style, size), f);
+        }
+        return f;
+    }
+
+    // name, style and size of a derived font
+    private static final class FontKey {
+        private String name;
+        private int style;
+        private float size;
+
+        FontKey(String name, int style, float size) { set(name, style, size); }
+
+        void set(String name, int style, float size) {
+            this.name = name;
+            this.style = style;
+            this.size = size;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof FontKey)) return false;
+            FontKey k = (FontKey) o;
+            return style == k.style && size == k.size && name.equals(k.name);
+        }
+
+        public int hashCode() {
+            return (name.hashCode() * 31 + style) * 31 + Float.floatToIntBits(size);
+        }
+    }
+
+    // descent and remembered string widths of one font
+    private static final class TextMetrics {
+        private FontMetrics metrics;
+        private int descent;
+        private HashMap<String, Integer> widths = new HashMap<String, Integer>();
+
+        TextMetrics(FontMetrics metrics) {
+            this.metrics = metrics;
+            this.descent = metrics.getDescent();
+        }
+
+        int stringWidth(String s) {
+            Integer w = widths.get(s);
+            if (w == null) {
+                if (widths.size() >= MAX_CACHED_WIDTHS) widths.clear();
+                w = metrics.stringWidth(s);
+                widths.put(s, w);
+            }
+            return w;
+        }
+    }
+
+    // the text metrics of the current font, measured the first time it is used
+    private static TextMetrics fontMetrics() {
+        if (fontMetrics == null) {
+            fontMetrics = textMetrics.get(font);
+            if (fontMetrics == null) {
+                fontMetrics = new TextMetrics(offscreen.getFontMetrics(font));
+                if (textMetrics.size() >= MAX_CACHED_FONTS) textMetrics.clear();
+                textMetrics.put(font, fontMetrics);
+            }
+        }
+        return fontMetrics;
     }
 
 
@@ -1051,6 +1188,60 @@ public final class PennDraw implements ActionListener, MouseListener, MouseMotio
         picture(x, y, s, 0, 0, 0);
     }
 
+    /**
+     * Draw an image already in memory centered on (x, y), at its own size in
+     * pixels. Cheaper than drawing the same shapes again, so it suits sprites
+     * rendered once with <tt>drawToImage()</tt>.
+     * @param x the center x-coordinate of the image
+     * @param y the center y-coordinate of the image
+     * @param image the image to draw
+     */
+    public static void picture(double x, double y, Image image) {
+        int iw = image.getWidth(null);
+        int ih = image.getHeight(null);
+        offscreen.drawImage(image, (int) Math.round(scaleX(x) - 0.5 * iw),
+                            (int) Math.round(scaleY(y) - 0.5 * ih), null);
+        draw();
+    }
+
+    /**
+     * Run the given drawing commands into an image instead of the canvas, as
+     * if the image were the part of the canvas centered on (x, y). The current
+     * pen color, pen radius, font and rendering quality carry over, and any
+     * changes the drawing makes to them stay in effect afterwards.
+     * @param image the image to draw into
+     * @param x the x-coordinate the center of the image stands for
+     * @param y the y-coordinate the center of the image stands for
+     * @param drawing the drawing commands to run
+     */
+    public static void drawToImage(BufferedImage image, double x, double y, Runnable drawing) {
+        Graphics2D canvas = offscreen;
+        boolean canvasDefer = defer;
+
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHints(canvas.getRenderingHints());
+        g.setStroke(canvas.getStroke());
+        g.setColor(canvas.getColor());
+        g.setFont(canvas.getFont());
+        g.translate(0.5 * image.getWidth() - scaleX(x), 0.5 * image.getHeight() - scaleY(y));
+
+        offscreen = g;
+        defer = true;
+        try {
+            drawing.run();
+        }
+        finally {
+            offscreen = canvas;
+            defer = canvasDefer;
+            g.dispose();
+
+            // keep pen and font changes made while drawing into the image
+            setPenRadius(penRadius);
+            offscreen.setColor(penColor);
+            offscreen.setFont(font);
+        }
+    }
+
     /**
      * Draw picture (gif, jpg, or png) centered on (x, y), rotated given number of degrees
      * @param x the center x-coordinate of the image
@@ -1194,9 +1385,9 @@ public final class PennDraw implements ActionListener, MouseListener, MouseMotio
     private static void text(double x, double y, String s, double degrees, double dw) {
         AffineTransform t = (AffineTransform) offscreen.getTransform();
 
-        FontMetrics metrics = offscreen.getFontMetrics();
+        TextMetrics metrics = fontMetrics();
         int w = metrics.stringWidth(s);
-        int h = metrics.getDescent();
+        int h = metrics.descent;
         
         double xs = scaleX(x);
         double ys = scaleY(y);
@@ -1223,19 +1414,106 @@ public final class PennDraw implements ActionListener, MouseListener, MouseMotio
      * @param t number of milliseconds
      */
     public static void show(int t) {
-        // sleep until the next time we're allowed to draw
-        long millis = System.currentTimeMillis();
-        if (millis < nextDraw) {
-            try { Thread.sleep(nextDraw - millis); }
-            catch (InterruptedException e) { System.out.println("Error sleeping"); }
-            millis = nextDraw;
-        }
+        waitForFrame();
 
         defer = false;
         draw();
         defer = true;
 
-        nextDraw = millis + t;
+        frameShown(t * 1000000L);
+    }
+
+    // park until just before the next frame is due, then spin until it is
+    private static void waitForFrame() {
+        if (!framePaced) return;
+
+        long remaining = nextFrame - System.nanoTime();
+        while (remaining > SPIN_NANOS) {
+            LockSupport.parkNanos(remaining - SPIN_NANOS);
+            if (Thread.currentThread().isInterrupted()) return;
+            remaining = nextFrame - System.nanoTime();
+        }
+        while (remaining > 0) {
+            Thread.onSpinWait();
+            remaining = nextFrame - System.nanoTime();
+        }
+    }
+
+    // record the time since the last frame and schedule the next one
+    private static void frameShown(long period) {
+        long now = System.nanoTime();
+        long elapsed = now - lastFrame;
+
+        if (!framePaced) {
+            // first frame, or the program was idle: start a new schedule
+            nextFrame = now + period;
+        }
+        else {
+            frameTimes[(int) (frameCount % FRAME_SAMPLES)] = elapsed;
+            frameCount++;
+            frameTotal += elapsed;
+
+            // schedule from when this frame was due rather than when it was shown,
+            // so sleep overshoot does not add up; a frame a whole period late has
+            // missed its slot, so count the frames skipped and start over from now
+            long late = now - nextFrame;
+            if (lastPeriod == 0 || late >= lastPeriod) {
+                if (lastPeriod > 0) droppedFrames += late / lastPeriod;
+                nextFrame = now + period;
+            }
+            else nextFrame += period;
+        }
+
+        lastFrame = now;
+        lastPeriod = period;
+        framePaced = true;
+    }
+
+    /**
+     * Mark a rectangle of the drawing as changed, so the next call to
+     * <tt>advanceDirty()</tt> copies it to the screen.
+     * @param x the x-coordinate of the center of the rectangle
+     * @param y the y-coordinate of the center of the rectangle
+     * @param halfWidth one half the width of the rectangle
+     * @param halfHeight one half the height of the rectangle
+     */
+    public static void markDirty(double x, double y, double halfWidth, double halfHeight) {
+        // pad by a pixel on each side for antialiased edges
+        int x0 = (int) Math.floor(scaleX(x - halfWidth)) - 1;
+        int y0 = (int) Math.floor(scaleY(y + halfHeight)) - 1;
+        int x1 = (int) Math.ceil(scaleX(x + halfWidth)) + 1;
+        int y1 = (int) Math.ceil(scaleY(y - halfHeight)) + 1;
+        Rectangle r = new Rectangle(x0, y0, x1 - x0, y1 - y0);
+
+        if (dirty == null) dirty = r;
+        else               dirty = dirty.union(r);
+    }
+
+    /**
+     * Like <tt>advance()</tt>, but only copy the rectangles marked with
+     * <tt>markDirty()</tt> since the last frame to the screen, and only repaint
+     * that part of the window. If nothing was marked, nothing is copied or
+     * repainted, so an unchanged frame costs almost nothing.
+     *
+     * @throws RuntimeException is animation mode has not been enabled
+     */
+    public static void advanceDirty() {
+        if (framePeriod < 0)
+            throw new RuntimeException("You must call PennDraw.enableAnimation() to activate animation mode before calling PennDraw.advanceDirty()");
+
+        waitForFrame();
+
+        if (dirty != null) {
+            Rectangle r = dirty.intersection(new Rectangle(0, 0, width, height));
+            if (!r.isEmpty()) {
+                onscreen.drawImage(offscreenImage.getSubimage(r.x, r.y, r.width, r.height),
+                                   r.x, r.y, null);
+                label.repaint(r.x, r.y, r.width, r.height);
+            }
+            dirty = null;
+        }
+
+        frameShown(framePeriod);
     }
 
     /**
@@ -1254,13 +1532,15 @@ public final class PennDraw implements ActionListener, MouseListener, MouseMotio
         if (defer) return;
         onscreen.drawImage(offscreenImage, 0, 0, null);
         frame.repaint();
+        dirty = null;
     }
 
     /**
      * Draw everything immediately (equivalent to calling PennDraw.show() with no arguments)
      */
     public static void disableAnimation() {
-        animationSpeed = -1; // disable animation mode
+        framePeriod = -1;    // disable animation mode
+        framePaced = false;  // and start a new schedule when it is enabled again
         show();
     }
 
@@ -1268,7 +1548,9 @@ public final class PennDraw implements ActionListener, MouseListener, MouseMotio
      * Set animation mode with specified frame rate
      * Equivalent to calling PennDraw.show(0), with
      * subsequent calls to PennDraw.advance() being
-     * equivalent to calling PennDraw.show(10000.0 / frameRate).
+     * equivalent to calling PennDraw.show(1000.0 / frameRate),
+     * except that the frame period is kept in nanoseconds rather
+     * than rounded to whole milliseconds.
      *
      * Use PennDraw.enableAnimation(0) to have PennDraw.advance()
      * draw as fast as possible (just like PennDraw.show(0)).
@@ -1277,7 +1559,7 @@ public final class PennDraw implements ActionListener, MouseListener, MouseMotio
      */
     public static void enableAnimation(double frameRate) {
         if (frameRate < 0) throw new IllegalArgumentException("frameRate must be >= 0");
-        animationSpeed = frameRate == 0 ? 0 : (int) Math.round(1000.0 / frameRate); // save frame rate in ms
+        framePeriod = frameRate == 0 ? 0 : Math.round(1e9 / frameRate);  // save frame period in ns
         show(0);                                                               // and switch to animation mode
     }
 
@@ -1288,10 +1570,101 @@ public final class PennDraw implements ActionListener, MouseListener, MouseMotio
      * @throws RuntimeException is animation mode has not been enabled
      */
     public static void advance() {
-        if (animationSpeed < 0)
+        if (framePeriod < 0)
             throw new RuntimeException("You must call PennDraw.enableAnimation() to activate animation mode before calling PennDraw.advance()");
 
-        show(animationSpeed);
+        waitForFrame();
+
+        defer = false;
+        draw();
+        defer = true;
+
+        frameShown(framePeriod);
+    }
+
+    /**
+     * Indicate that the program is about to wait for something other than
+     * the next frame, such as the user. The next frame starts a new schedule,
+     * so the wait is neither delayed to nor counted as a frame time.
+     * <tt>waitForKeyTyped()</tt> calls this whenever it has to wait.
+     */
+    public static void idle() {
+        framePaced = false;
+    }
+
+    /**
+     * Frame-time statistics for the frames shown by <tt>show(int t)</tt>,
+     * <tt>advance()</tt> and <tt>advanceDirty()</tt>, as returned by
+     * <tt>getFrameStats()</tt>. The gap before the first frame after
+     * <tt>idle()</tt> is not counted.
+     */
+    public static final class FrameStats {
+        private final long frames;
+        private final double meanMillis;
+        private final double p99Millis;
+        private final long droppedFrames;
+
+        private FrameStats(long frames, double meanMillis, double p99Millis, long droppedFrames) {
+            this.frames = frames;
+            this.meanMillis = meanMillis;
+            this.p99Millis = p99Millis;
+            this.droppedFrames = droppedFrames;
+        }
+
+        /**
+         * Get the number of frame times measured.
+         * @return the number of frames
+         */
+        public long getFrames() { return frames; }
+
+        /**
+         * Get the mean time between frames.
+         * @return the mean frame time in milliseconds, or 0 if no frames were measured
+         */
+        public double getMeanMillis() { return meanMillis; }
+
+        /**
+         * Get the 99th percentile of the last 1024 frame times.
+         * @return the 99th percentile frame time in milliseconds, or 0 if no frames were measured
+         */
+        public double getP99Millis() { return p99Millis; }
+
+        /**
+         * Get the number of frames skipped because a frame was shown a whole
+         * frame period or more after it was due.
+         * @return the number of dropped frames
+         */
+        public long getDroppedFrames() { return droppedFrames; }
+
+        public String toString() {
+            return String.format("%d frames, mean %.3f ms, p99 %.3f ms, %d dropped",
+                                 frames, meanMillis, p99Millis, droppedFrames);
+        }
+    }
+
+    /**
+     * Get the frame-time statistics measured since the program started or
+     * <tt>resetFrameStats()</tt> was last called.
+     * @return the frame count, mean and 99th percentile frame time, and dropped frames
+     */
+    public static FrameStats getFrameStats() {
+        int n = (int) Math.min(frameCount, FRAME_SAMPLES);
+        long[] recent = Arrays.copyOf(frameTimes, n);
+        Arrays.sort(recent);
+
+        double mean = frameCount == 0 ? 0 : frameTotal / 1e6 / frameCount;
+        double p99 = n == 0 ? 0 : recent[(int) Math.ceil(0.99 * n) - 1] / 1e6;
+        return new FrameStats(frameCount, mean, p99, droppedFrames);
+    }
+
+    /**
+     * Clear the frame-time statistics, e.g. to leave out frames drawn while
+     * a program was starting up.
+     */
+    public static void resetFrameStats() {
+        frameCount = 0;
+        frameTotal = 0;
+        droppedFrames = 0;
     }
     
    /*************************************************************************
@@ -1452,6 +1825,30 @@ public final class PennDraw implements ActionListener, MouseListener, MouseMotio
         }
     }
 
+    /**
+     * Wait until the user has typed a key or the timeout passes, without
+     * using the processor while waiting. If it has to wait, it calls
+     * <tt>idle()</tt>, so the wait is not counted in the frame statistics.
+     * @param timeoutMillis the longest time to wait, in milliseconds
+     * @return true if the user has typed a key, false if the wait timed out
+     */
+    public static boolean waitForKeyTyped(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (keyLock) {
+            while (keysTyped.isEmpty()) {
+                idle();
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) return false;
+                try { keyLock.wait(remaining); }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
     /**
      * What is the next key that was typed by the user? This method returns
      * a Unicode character corresponding to the key typed (such as 'a' or 'A').
@@ -1486,6 +1883,7 @@ public final class PennDraw implements ActionListener, MouseListener, MouseMotio
     public void keyTyped(KeyEvent e) {
         synchronized (keyLock) {
             keysTyped.addFirst(e.getKeyChar());
+            keyLock.notifyAll();
         }
     }
 
@@ -0,0 +1,52 @@
+/**
+ * Execution: java RandomPolicy
+ *
+ * Program Description: MovePolicy that presses a random key out of those that
+ * result in a move.
+ */
+
+import java.util.SplittableRandom;
+
+public class RandomPolicy implements MovePolicy
+{
+    private SplittableRandom random;    // Source of key choices
+
+    /**
+     * Input: none
+     * Output: none
+     * Description: Constructor that creates a RandomPolicy with an unseeded
+     * random source.
+     */
+    public RandomPolicy() {
+        this(new SplittableRandom());
+    }
+
+    /**
+     * Input: SplittableRandom random
+     * Output: none
+     * Description: Constructor that creates a RandomPolicy drawing its key
+     * choices from the input random source.
+     */
+    public RandomPolicy(SplittableRandom random) {
+        this.random = random;
+    }
+
+    /**
+     * Input: Board board
+     * Output: char
+     * Description: Returns a random valid key for the input Board.
+     */
+    public char nextMove(Board board) {
+        // Start at a random key and take the first valid one from there
+        int start = random.nextInt(4);
+
+        for (int k = 0; k < 4; k++) {
+            char key = BitBoard.KEYS[(start + k) % 4];
+            if (board.validKey(key)) {
+                return key;
+            }
+        }
+
+        return BitBoard.KEYS[start];
+    }
+}
@@ -0,0 +1,408 @@
+/**
+ * Execution: java ReplayStore [recordFile] [storeFile]
+ *
+ * Program Description: Read-only archive of recorded games that is memory
+ * mapped with FileChannel.map instead of read into the heap, so any game can
+ * be found and replayed without reading the rest of the file.
+ *
+ * A store is a GameRecord file followed by an index section and a footer:
+ *
+ *   records        GameRecord header and games, unchanged
+ *   index          8 bytes per game, the file offset where the game starts
+ *   footer         index offset (8 bytes), game count (4 bytes), "IDX1"
+ *
+ * Looking up game g reads its offset from the index, so it takes the same
+ * time for every game. Reads use absolute positions on the shared mapping, so
+ * several threads can read one store at once. A store must be under 2 GB, the
+ * most a single mapping can hold, which with offsets kept as ints is about 20
+ * million games at roughly 100 bytes each.
+ *
+ * Running it builds a store from a record file and times a full sequential
+ * scan that replays every game through Board.move, printing games per second.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class ReplayStore implements Closeable
+{
+    // "IDX1" in ASCII, the last 4 bytes of every store
+    public static final int INDEX_MAGIC = 0x49445831;
+
+    // Bytes in the footer
+    private static final int FOOTER_SIZE = 16;
+
+    // Bytes in the GameRecord header
+    private static final int HEADER_SIZE = 5;
+
+    private FileChannel channel;                // Open store file
+    private MappedByteBuffer buffer;            // Whole file, read only
+    private int indexOffset;                    // Start of the index
+    private int gameCount;                      // Games in the store
+
+    /**
+     * Input: Path store
+     * Output: none
+     * Description: Constructor that maps the input store file and checks its
+     * header and footer. Throws IOException if it is not a store.
+     */
+    public ReplayStore(Path store) throws IOException {
+        channel = FileChannel.open(store, StandardOpenOption.READ);
+        long size = channel.size();
+
+        if (size < HEADER_SIZE + FOOTER_SIZE || size > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException("not a replay store: " + store);
+        }
+
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+        int footer = (int) size - FOOTER_SIZE;
+        long index = buffer.getLong(footer);
+        gameCount = buffer.getInt(footer + 8);
+
+        if (buffer.getInt(0) != GameRecord.MAGIC ||
+            buffer.get(4) != GameRecord.VERSION ||
+            buffer.getInt(footer + 12) != INDEX_MAGIC ||
+            gameCount < 0 || index + 8L * gameCount != footer) {
+            channel.close();
+            throw new IOException("not a replay store: " + store);
+        }
+
+        indexOffset = (int) index;
+    }
+
+    /**
+     * Input: Path records, Path store
+     * Output: int
+     * Description: Writes a store holding every game in the input GameRecord
+     * file and returns the number of games. The record file is mapped rather
+     * than read into the heap, and is checked in full before the store is
+     * opened. Throws IOException if it is not a complete record file or the
+     * store would not fit in one mapping; if writing fails, the partly written
+     * store is deleted.
+     */
+    public static int build(Path records, Path store) throws IOException {
+        try (FileChannel in = FileChannel.open(records, StandardOpenOption.READ))
+        {
+            long size = in.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("record file too small or over 2 GB: " + records);
+            }
+
+            MappedByteBuffer source = in.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (source.getInt(0) != GameRecord.MAGIC || source.get(4) != GameRecord.VERSION) {
+                throw new IOException("not a game record file: " + records);
+            }
+
+            // Count the games, which also checks every game fits in the file
+            int count = 0;
+            for (int offset = HEADER_SIZE; offset < size; offset = nextGame(source, offset, records)) {
+                count++;
+            }
+
+            if (size + 8L * count + FOOTER_SIZE > Integer.MAX_VALUE) {
+                throw new IOException("store for " + count + " games would be over 2 GB: " + records);
+            }
+
+            boolean written = false;
+            try {
+                write(in, source, count, records, store);
+                written = true;
+            }
+            finally {
+                if (!written) {
+                    Files.deleteIfExists(store);
+                }
+            }
+
+            return count;
+        }
+    }
+
+    /**
+     * Input: MappedByteBuffer source, int offset, Path records
+     * Output: int
+     * Description: Returns the offset of the game after the one starting at
+     * the input offset of a mapped record file. Throws IOException if that
+     * game runs past the end of the file.
+     */
+    private static int nextGame(MappedByteBuffer source, int offset, Path records)
+        throws IOException
+    {
+        int size = source.limit();
+        int position = offset + GameRecord.GAME_PREFIX_SIZE;
+        int moves = 0;
+
+        // A move count takes at most 5 varint bytes
+        for (int shift = 0; ; shift += 7) {
+            if (position >= size || shift > 28) {
+                throw new IOException("record file cut short or corrupt at byte " + offset + ": " + records);
+            }
+            byte b = source.get(position);
+            position++;
+            moves |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+
+        long next = (long) position + 2 + (moves & 0xFFFFFFFFL);
+        if (next > size) {
+            throw new IOException("record file cut short or corrupt at byte " + offset + ": " + records);
+        }
+        return (int) next;
+    }
+
+    /**
+     * Input: FileChannel in, MappedByteBuffer source, int count, Path records,
+     *        Path store
+     * Output: none
+     * Description: Writes the store for an already checked record file of
+     * count games: the records unchanged, then the index and footer.
+     */
+    private static void write(FileChannel in, MappedByteBuffer source, int count,
+                              Path records, Path store)
+        throws IOException
+    {
+        try (FileChannel out = FileChannel.open(store, StandardOpenOption.CREATE,
+                                                StandardOpenOption.WRITE,
+                                                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            long size = source.limit();
+
+            // Copy the records unchanged
+            long copied = 0;
+            while (copied < size) {
+                copied += in.transferTo(copied, size - copied, out);
+            }
+
+            // Write the offset of each game
+            ByteBuffer index = ByteBuffer.allocate(1 << 16);
+            int offset = HEADER_SIZE;
+
+            for (int g = 0; g < count; g++) {
+                if (!index.hasRemaining()) {
+                    writeFully(out, index);
+                }
+                index.putLong(offset);
+                offset = nextGame(source, offset, records);
+            }
+
+            // The index starts right after the copied records
+            if (index.remaining() < FOOTER_SIZE) {
+                writeFully(out, index);
+            }
+            index.putLong(size);
+            index.putInt(count);
+            index.putInt(INDEX_MAGIC);
+            writeFully(out, index);
+        }
+    }
+
+    /**
+     * Input: FileChannel out, ByteBuffer bytes
+     * Output: none
+     * Description: Writes everything put in bytes so far and clears it.
+     */
+    private static void writeFully(FileChannel out, ByteBuffer bytes) throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    /**
+     * Input: none
+     * Output: int
+     * Description: Getter method that returns the number of games stored.
+     */
+    public int getGameCount() {
+        return this.gameCount;
+    }
+
+    /**
+     * Input: int game
+     * Output: long
+     * Description: Returns the seed of the input game.
+     */
+    public long getSeed(int game) {
+        return buffer.getLong(gameOffset(game));
+    }
+
+    /**
+     * Input: int game
+     * Output: long
+     * Description: Returns the packed board the input game ended on when it
+     * was recorded.
+     */
+    public long getFinalState(int game) {
+        return buffer.getLong(gameOffset(game) + 8);
+    }
+
+    /**
+     * Input: int game
+     * Output: int
+     * Description: Returns the final score of the input game when it was
+     * recorded.
+     */
+    public int getScore(int game) {
+        return buffer.getInt(gameOffset(game) + 16);
+    }
+
+    /**
+     * Input: int game
+     * Output: int
+     * Description: Returns the number of moves in the input game.
+     */
+    public int getMoveCount(int game) {
+        int position = gameOffset(game) + GameRecord.GAME_PREFIX_SIZE;
+        int moves = 0;
+
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get(position);
+            position++;
+            moves |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return moves;
+            }
+        }
+    }
+
+    /**
+     * Input: int game
+     * Output: long
+     * Description: Returns the packed starting position of the input game.
+     */
+    public long getInitialState(int game) {
+        int spawns = spawnOffset(game);
+        long state = GameRecord.applySpawn(0, buffer.get(spawns));
+        return GameRecord.applySpawn(state, buffer.get(spawns + 1));
+    }
+
+    /**
+     * Input: int game, int k
+     * Output: byte
+     * Description: Returns the k-th move byte of the input game (see
+     * GameRecord).
+     */
+    public byte getMove(int game, int k) {
+        if (k < 0 || k >= getMoveCount(game)) {
+            throw new IndexOutOfBoundsException("move " + k + " of game " + game);
+        }
+        return buffer.get(spawnOffset(game) + 2 + k);
+    }
+
+    /**
+     * Input: int game, byte[] moves
+     * Output: int
+     * Description: Copies the move bytes of the input game into the start of
+     * moves, which must be large enough, and returns the number of moves.
+     */
+    public int getMoves(int game, byte[] moves) {
+        int spawns = spawnOffset(game);
+        int count = getMoveCount(game);
+        buffer.get(spawns + 2, moves, 0, count);
+        return count;
+    }
+
+    /**
+     * Input: int game
+     * Output: Board
+     * Description: Replays the input game from its starting position through
+     * Board.move with the recorded keys and spawns, and returns the final
+     * Board.
+     */
+    public Board replay(int game) {
+        int spawns = spawnOffset(game);
+        int moves = getMoveCount(game);
+        // Spawns are replayed, so the Board needs no random source
+        Board board = new Board(getInitialState(game), null);
+
+        for (int k = 0; k < moves; k++) {
+            byte move = buffer.get(spawns + 2 + k);
+            board.move(GameRecord.keyOf(move), GameRecord.spawnCellOf(move),
+                       GameRecord.spawnExponentOf(move));
+        }
+
+        return board;
+    }
+
+    /**
+     * Input: none
+     * Output: none
+     * Description: Closes the store file. The mapping is released once it is
+     * no longer reachable.
+     */
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Input: int game
+     * Output: int
+     * Description: Returns the file offset where the input game starts, read
+     * from the index.
+     */
+    private int gameOffset(int game) {
+        if (game < 0 || game >= gameCount) {
+            throw new IndexOutOfBoundsException("game " + game + " of " + gameCount);
+        }
+        return (int) buffer.getLong(indexOffset + 8 * game);
+    }
+
+    /**
+     * Input: int game
+     * Output: int
+     * Description: Returns the file offset of the input game's starting tiles,
+     * just past its move count.
+     */
+    private int spawnOffset(int game) {
+        int position = gameOffset(game) + GameRecord.GAME_PREFIX_SIZE;
+        while ((buffer.get(position) & 0x80) != 0) {
+            position++;
+        }
+        return position + 1;
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        Path records = Paths.get((args.length > 0) ? args[0] : "games.rec");
+        Path storePath = Paths.get((args.length > 1) ? args[1] : "games.store");
+
+        long start = System.nanoTime();
+        int games = build(records, storePath);
+        double buildSeconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Built %s: %d games in %.3f s%n", storePath, games, buildSeconds);
+
+        try (ReplayStore store = new ReplayStore(storePath)) {
+            // Warm up, then time a full scan
+            for (int g = 0; g < Math.min(games, 10000); g++) {
+                store.replay(g);
+            }
+
+            long moves = 0;
+            long checksum = 0;
+
+            start = System.nanoTime();
+            for (int g = 0; g < games; g++) {
+                Board board = store.replay(g);
+                moves += board.getNumMoves();
+                checksum ^= board.getState();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("Full scan: %.3f s  Games/second: %.0f  Moves/second: %.0f  Checksum: %x%n",
+                              seconds, games / seconds, moves / seconds, checksum);
+        }
+    }
+}
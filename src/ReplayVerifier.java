@@ -0,0 +1,251 @@
+/**
+ * Execution: java ReplayVerifier [recordFile] [threads]
+ *
+ * Program Description: Checks that the current engine reproduces recorded
+ * games bit for bit from their seeds. Every game in a GameRecord file is
+ * replayed on a Board whose spawns are drawn from the recorded seed, as
+ * Simulator.playGame draws them, with each recorded key passed to Board.move.
+ * The starting tiles and every spawn must equal the logged ones, and the
+ * final board, largest tile and score must equal the ones recorded. A
+ * recorded key that no longer moves any tile also counts as a mismatch. So
+ * does any change to how moves slide tiles or to how spawns are chosen from
+ * the seed.
+ *
+ * Games are split across worker threads in chunks. The record file is indexed
+ * into a temporary ReplayStore first so every worker can read any game from
+ * the same mapping. Prints the number of mismatches, the first few of them,
+ * and the replay throughput.
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ReplayVerifier
+{
+    // Games replayed by one pool task
+    private static final int CHUNK_SIZE = 1024;
+
+    // Mismatches described in full; the rest are only counted
+    private static final int MAX_REPORTED = 10;
+
+    private ReplayStore store;                  // Games to check
+    private LongAdder games = new LongAdder();  // Games checked
+    private LongAdder moves = new LongAdder();  // Moves replayed
+    private LongAdder mismatches = new LongAdder();     // Games that differ
+    private ConcurrentLinkedQueue<String> reported =
+        new ConcurrentLinkedQueue<String>();    // First mismatches found
+
+    /**
+     * Input: ReplayStore store
+     * Output: none
+     * Description: Constructor that creates a verifier for the games in the
+     * input store.
+     */
+    public ReplayVerifier(ReplayStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Input: int game, byte[] moves
+     * Output: String
+     * Description: Replays the input game from its seed, using moves as
+     * scratch space, and returns a description of the first difference from
+     * the recording, or null if it matches.
+     */
+    public String verify(int game, byte[] moves) {
+        int count = store.getMoves(game, moves);
+
+        // Simulator.playGame splits the policy's source off the game's source
+        // before the Board draws any spawn from it
+        SplittableRandom random = new SplittableRandom(store.getSeed(game));
+        random.split();
+        Board board = new Board(random);
+
+        if (board.getState() != store.getInitialState(game)) {
+            return "game " + game + ": starting tiles " + Long.toHexString(board.getState()) +
+                   ", recorded " + Long.toHexString(store.getInitialState(game));
+        }
+
+        for (int k = 0; k < count; k++) {
+            char key = GameRecord.keyOf(moves[k]);
+
+            if (!board.validKey(key)) {
+                return "game " + game + ": move " + k + " (" + key + ") moves no tiles";
+            }
+
+            board.move(key);
+
+            int cell = GameRecord.spawnCellOf(moves[k]);
+            int exponent = GameRecord.spawnExponentOf(moves[k]);
+            if (board.getLastSpawnCell() != cell || board.getLastSpawnExponent() != exponent) {
+                return "game " + game + ": move " + k + " spawns " +
+                       (1 << board.getLastSpawnExponent()) + " at cell " + board.getLastSpawnCell() +
+                       ", recorded " + (1 << exponent) + " at cell " + cell;
+            }
+        }
+
+        long expected = store.getFinalState(game);
+
+        if (BitBoard.maxExponent(board.getState()) != BitBoard.maxExponent(expected)) {
+            return "game " + game + ": max tile " + (1 << BitBoard.maxExponent(board.getState())) +
+                   ", recorded " + (1 << BitBoard.maxExponent(expected));
+        }
+        if (board.getState() != expected) {
+            return "game " + game + ": final board " + Long.toHexString(board.getState()) +
+                   ", recorded " + Long.toHexString(expected);
+        }
+        if (board.getScore() != store.getScore(game)) {
+            return "game " + game + ": score " + board.getScore() +
+                   ", recorded " + store.getScore(game);
+        }
+
+        return null;
+    }
+
+    /**
+     * Input: int threads
+     * Output: none
+     * Description: Verifies every game in the store on the input number of
+     * worker threads. A game whose replay throws counts as a mismatch; any
+     * other failure of a worker is thrown as ExecutionException.
+     */
+    public void run(int threads) throws InterruptedException, ExecutionException {
+        int total = store.getGameCount();
+
+        // Each worker replays into its own move array
+        ThreadLocal<byte[]> scratch = ThreadLocal.withInitial(() -> new byte[1 << 16]);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> chunks = new ArrayList<Future<?>>();
+
+        for (int first = 0; first < total; first += CHUNK_SIZE) {
+            int from = first;
+            int to = Math.min(total, first + CHUNK_SIZE);
+
+            chunks.add(pool.submit(() -> {
+                byte[] moveBuffer = scratch.get();
+                long chunkMoves = 0;
+
+                for (int g = from; g < to; g++) {
+                    int count = 0;
+                    String mismatch;
+
+                    try {
+                        count = store.getMoveCount(g);
+                        if (count > moveBuffer.length) {
+                            moveBuffer = new byte[count];
+                            scratch.set(moveBuffer);
+                        }
+                        mismatch = verify(g, moveBuffer);
+                    }
+                    catch (RuntimeException e) {
+                        mismatch = "game " + g + ": replay threw " + e;
+                    }
+
+                    if (mismatch != null) {
+                        mismatches.increment();
+                        if (reported.size() < MAX_REPORTED) {
+                            reported.add(mismatch);
+                        }
+                    }
+                    chunkMoves += count;
+                }
+
+                games.add(to - from);
+                moves.add(chunkMoves);
+            }));
+        }
+
+        try {
+            for (Future<?> chunk : chunks) {
+                chunk.get();
+            }
+        }
+        finally {
+            pool.shutdownNow();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Input: none
+     * Output: long
+     * Description: Returns the number of games checked.
+     */
+    public long getGames() {
+        return games.sum();
+    }
+
+    /**
+     * Input: none
+     * Output: long
+     * Description: Returns the number of moves replayed.
+     */
+    public long getMoves() {
+        return moves.sum();
+    }
+
+    /**
+     * Input: none
+     * Output: long
+     * Description: Returns the number of games that did not match their
+     * recording.
+     */
+    public long getMismatches() {
+        return mismatches.sum();
+    }
+
+    /**
+     * Input: none
+     * Output: Iterable<String>
+     * Description: Returns descriptions of the first mismatches found.
+     */
+    public Iterable<String> getReported() {
+        return reported;
+    }
+
+    public static void main(String[] args)
+        throws IOException, InterruptedException, ExecutionException
+    {
+        Path records = Paths.get((args.length > 0) ? args[0] : "games.rec");
+        int threads = (args.length > 1) ? Integer.parseInt(args[1])
+                                        : Runtime.getRuntime().availableProcessors();
+
+        Path storePath = Files.createTempFile("replay", ".store");
+
+        try {
+            ReplayStore.build(records, storePath);
+
+            try (ReplayStore store = new ReplayStore(storePath)) {
+                ReplayVerifier verifier = new ReplayVerifier(store);
+
+                long start = System.nanoTime();
+                verifier.run(threads);
+                double seconds = (System.nanoTime() - start) / 1e9;
+
+                System.out.printf("Games: %d  Mismatches: %d  Threads: %d%n",
+                                  verifier.getGames(), verifier.getMismatches(), threads);
+                for (String mismatch : verifier.getReported()) {
+                    System.out.println("  " + mismatch);
+                }
+                System.out.printf("Elapsed: %.3f s  Games/second: %.0f  Moves/second: %.0f%n",
+                                  seconds, verifier.getGames() / seconds,
+                                  verifier.getMoves() / seconds);
+            }
+        }
+        finally {
+            Files.deleteIfExists(storePath);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/**
+ * Execution: java SelfPlayFarm [games] [workers] [random | corner | expectimax] [seed]
+ *
+ * Program Description: Plays many independent games on a pool of worker
+ * threads to estimate win rates. Every game has its own Board, policy and
+ * random source, seeded the same way as in Simulator, so any game can be
+ * replayed alone with Simulator.playGame(policyName, gameSeed). Each worker thread
+ * adds its results to its own accumulator, and the accumulators are only
+ * merged once all games are done, so nothing is shared while games run.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class SelfPlayFarm
+{
+    // Games handed to a worker at a time
+    private static final int CHUNK_SIZE = 64;
+
+    /**
+     * Totals for the games played by one worker thread, or all of them once
+     * merged.
+     */
+    public static class Stats
+    {
+        private long games;             // Games played
+        private long wins;              // Games that reached 2048
+        private long moves;             // Moves made over all games
+        private long score;             // Score over all games
+        private long nanos;             // Time spent playing
+        private long[] maxTiles = new long[BitBoard.MAX_EXPONENT + 1];
+                                        // Games by largest exponent reached
+
+        /**
+         * Input: Board board, long nanos
+         * Output: none
+         * Description: Adds one finished game.
+         */
+        void add(Board board, long nanos) {
+            games++;
+            moves += board.getNumMoves();
+            score += board.getScore();
+            this.nanos += nanos;
+            maxTiles[board.getMaxExponent()]++;
+            if (board.winChecker()) {
+                wins++;
+            }
+        }
+
+        /**
+         * Input: Stats other
+         * Output: none
+         * Description: Adds another accumulator's totals to this one.
+         */
+        void merge(Stats other) {
+            games += other.games;
+            wins += other.wins;
+            moves += other.moves;
+            score += other.score;
+            nanos += other.nanos;
+            for (int k = 0; k < maxTiles.length; k++) {
+                maxTiles[k] += other.maxTiles[k];
+            }
+        }
+
+        /**
+         * Input: none
+         * Output: long
+         * Description: Getter method that returns the number of games played.
+         */
+        public long getGames() {
+            return this.games;
+        }
+
+        /**
+         * Input: none
+         * Output: long
+         * Description: Getter method that returns the number of games that
+         * reached 2048.
+         */
+        public long getWins() {
+            return this.wins;
+        }
+
+        /**
+         * Input: none
+         * Output: long
+         * Description: Getter method that returns the number of moves made
+         * over all games.
+         */
+        public long getMoves() {
+            return this.moves;
+        }
+
+        /**
+         * Input: none
+         * Output: long
+         * Description: Getter method that returns the score summed over all
+         * games.
+         */
+        public long getScore() {
+            return this.score;
+        }
+
+        /**
+         * Input: none
+         * Output: long
+         * Description: Getter method that returns the time spent playing,
+         * summed over all games, in nanoseconds.
+         */
+        public long getNanos() {
+            return this.nanos;
+        }
+
+        /**
+         * Input: int exponent
+         * Output: long
+         * Description: Returns the number of games whose largest tile was
+         * 2^exponent.
+         */
+        public long getMaxTileCount(int exponent) {
+            return maxTiles[exponent];
+        }
+    }
+
+    /**
+     * Input: String policyName, long gameSeed, Stats stats
+     * Output: none
+     * Description: Plays one game with Simulator.playGame(policyName, gameSeed)
+     * and adds it to stats.
+     */
+    private static void playGame(String policyName, long gameSeed, Stats stats)
+    {
+        long start = System.nanoTime();
+        Board board = Simulator.playGame(policyName, gameSeed);
+        stats.add(board, System.nanoTime() - start);
+    }
+
+    /**
+     * Input: int games, int workers, String policyName, long seed
+     * Output: Stats
+     * Description: Plays the input number of games on workers threads and
+     * returns the merged results. Game g uses the g-th seed drawn from the
+     * master seed, whichever worker plays it. Throws ExecutionException with
+     * the cause if any game fails, after stopping the rest.
+     */
+    public static Stats run(int games, int workers, String policyName, long seed)
+        throws InterruptedException, ExecutionException
+    {
+        // Draw every game's seed up front so results do not depend on which
+        // worker plays which game
+        SplittableRandom master = new SplittableRandom(seed);
+        long[] seeds = new long[games];
+        for (int g = 0; g < games; g++) {
+            seeds[g] = master.nextLong();
+        }
+
+        // One accumulator per worker thread, registered so they can be merged
+        ConcurrentLinkedQueue<Stats> all = new ConcurrentLinkedQueue<Stats>();
+        ThreadLocal<Stats> local = ThreadLocal.withInitial(() -> {
+            Stats stats = new Stats();
+            all.add(stats);
+            return stats;
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        List<Future<?>> chunks = new ArrayList<Future<?>>();
+
+        for (int first = 0; first < games; first += CHUNK_SIZE) {
+            int from = first;
+            int to = Math.min(games, first + CHUNK_SIZE);
+
+            chunks.add(pool.submit(() -> {
+                Stats stats = local.get();
+                for (int g = from; g < to; g++) {
+                    playGame(policyName, seeds[g], stats);
+                }
+            }));
+        }
+
+        // A failed chunk would otherwise lose its games silently
+        try {
+            for (Future<?> chunk : chunks) {
+                chunk.get();
+            }
+        }
+        finally {
+            pool.shutdownNow();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+
+        Stats total = new Stats();
+        for (Stats stats : all) {
+            total.merge(stats);
+        }
+
+        return total;
+    }
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException
+    {
+        int games = (args.length > 0) ? Integer.parseInt(args[0]) : 10000;
+        int workers = (args.length > 1) ? Integer.parseInt(args[1])
+                                        : Runtime.getRuntime().availableProcessors();
+        String policyName = (args.length > 2) ? args[2] : "random";
+        long seed = (args.length > 3) ? Long.parseLong(args[3]) : System.nanoTime();
+
+        long start = System.nanoTime();
+        Stats stats = run(games, workers, policyName, seed);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Seed: %d  Policy: %s  Workers: %d%n", seed, policyName, workers);
+        System.out.printf("Games: %d  Wins: %d (%.2f%%)%n", stats.getGames(),
+                          stats.getWins(), 100.0 * stats.getWins() / stats.getGames());
+        System.out.printf("Average score: %.1f  Average moves: %.1f  Average game: %.3f ms%n",
+                          (double) stats.getScore() / stats.getGames(),
+                          (double) stats.getMoves() / stats.getGames(),
+                          stats.getNanos() / 1e6 / stats.getGames());
+
+        for (int exponent = 1; exponent <= BitBoard.MAX_EXPONENT; exponent++) {
+            if (stats.getMaxTileCount(exponent) > 0) {
+                System.out.printf("  Max tile %5d: %d%n", 1 << exponent,
+                                  stats.getMaxTileCount(exponent));
+            }
+        }
+
+        System.out.printf("Elapsed: %.3f s  Games/second: %.1f  Moves/second: %.0f%n",
+                          seconds, stats.getGames() / seconds, stats.getMoves() / seconds);
+    }
+}
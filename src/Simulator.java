@@ -0,0 +1,160 @@
+/**
+ * Execution: java Simulator [games] [random | corner | expectimax] [seed] [recordFile]
+ *
+ * Program Description: Plays 2048 games without a display, choosing each move
+ * with a MovePolicy instead of keyboard input, as fast as the CPU allows.
+ * Prints the number of wins, the average game length and the throughput in
+ * games and moves per second once all games are finished.
+ *
+ * Every game gets its own seed drawn from the master seed, and its tile spawns
+ * and policy choices come only from that seed, so any game can be replayed
+ * exactly with playGame(name, gameSeed). If a record file is given, every
+ * game is also written to it in the GameRecord format.
+ */
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+public class Simulator
+{
+    /**
+     * Input: String policyName, long gameSeed
+     * Output: Board
+     * Description: Plays a single game with the named policy, drawing tile
+     * spawns and policy choices from the input seed, and returns the final
+     * Board.
+     */
+    public static Board playGame(String policyName, long gameSeed)
+    {
+        SplittableRandom gameRandom = new SplittableRandom(gameSeed);
+        MovePolicy policy = policyFor(policyName, gameRandom.split());
+
+        return playGame(policy, new Board(gameRandom));
+    }
+
+    /**
+     * Input: String policyName, long gameSeed, GameRecordWriter writer
+     * Output: Board
+     * Description: Plays a single game as playGame(policyName, gameSeed) does
+     * and writes it to the input writer.
+     */
+    public static Board playGame(String policyName, long gameSeed,
+                                 GameRecordWriter writer) throws IOException
+    {
+        SplittableRandom gameRandom = new SplittableRandom(gameSeed);
+        MovePolicy policy = policyFor(policyName, gameRandom.split());
+        Board board = new Board(gameRandom);
+
+        writer.beginGame(gameSeed, board.getState());
+        playGame(policy, board, writer);
+        writer.endGame(board.getState(), board.getScore());
+
+        return board;
+    }
+
+    /**
+     * Input: MovePolicy policy, Board board
+     * Output: Board
+     * Description: Plays the input Board with the input policy until it is won
+     * or lost, and returns it.
+     */
+    public static Board playGame(MovePolicy policy, Board board)
+    {
+        return playGame(policy, board, null);
+    }
+
+    /**
+     * Input: MovePolicy policy, Board board, GameRecordWriter writer
+     * Output: Board
+     * Description: Plays the input Board with the input policy until it is won
+     * or lost, recording each move to the input writer unless it is null, and
+     * returns the Board.
+     */
+    private static Board playGame(MovePolicy policy, Board board,
+                                  GameRecordWriter writer)
+    {
+        while (!board.winChecker() && !board.lossChecker()) {
+            char key = policy.nextMove(board);
+
+            // A key that cannot move would repeat forever
+            if (!board.validKey(key)) {
+                throw new IllegalStateException("policy chose invalid key: " + key);
+            }
+
+            board.move(key);
+
+            if (writer != null) {
+                writer.recordMove(board, key);
+            }
+        }
+
+        return board;
+    }
+
+    /**
+     * Input: String name, SplittableRandom random
+     * Output: MovePolicy
+     * Description: Returns the policy with the input name. Policies that make
+     * random choices draw them from the input random source.
+     */
+    public static MovePolicy policyFor(String name, SplittableRandom random)
+    {
+        if (name.equals("random")) {
+            return new RandomPolicy(random);
+        }
+        else if (name.equals("corner")) {
+            return new CornerPolicy();
+        }
+        else if (name.equals("expectimax")) {
+            return new ExpectimaxPolicy();
+        }
+
+        throw new IllegalArgumentException("unknown policy: " + name);
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        int games = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+        String policyName = (args.length > 1) ? args[1] : "random";
+        long seed = (args.length > 2) ? Long.parseLong(args[2]) : System.nanoTime();
+        GameRecordWriter writer = (args.length > 3)
+            ? new GameRecordWriter(new FileOutputStream(args[3]))
+            : null;
+
+        SplittableRandom master = new SplittableRandom(seed);
+
+        long totalMoves = 0;
+        int wins = 0;
+
+        long start = System.nanoTime();
+
+        for (int g = 0; g < games; g++) {
+            long gameSeed = master.nextLong();
+            Board board = (writer == null) ? playGame(policyName, gameSeed)
+                                           : playGame(policyName, gameSeed, writer);
+            totalMoves += board.getNumMoves();
+            if (board.winChecker()) {
+                wins++;
+            }
+        }
+
+        if (writer != null) {
+            writer.close();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Seed: %d  Policy: %s%n", seed, policyName);
+        System.out.printf("Games: %d  Wins: %d  Average moves: %.1f%n",
+                          games, wins, (double) totalMoves / games);
+        System.out.printf("Elapsed: %.3f s  Games/second: %.1f  Moves/second: %.0f%n",
+                          seconds, games / seconds, totalMoves / seconds);
+
+        if (writer != null) {
+            System.out.printf("Recorded: %s  Bytes: %d  Bytes/game: %.1f%n",
+                              args[3], writer.getBytesWritten(),
+                              (double) writer.getBytesWritten() / games);
+        }
+    }
+}
@@ -2,7 +2,8 @@
  * Execution: java Tile
  *
  * Program Description: Creates Tile objects that represent the up to 16
- * individual tiles that populate the Board.
+ * individual tiles drawn on the Board. The Board itself stores tile values in
+ * a packed state, so a Tile is only a drawable view of one occupied space.
  */
 
 public class Tile
@@ -12,31 +13,34 @@ public class Tile
     private int value;      // Tile value
 
     /**
-     * Input: int x, int y
+     * Input: double x, double y, int value
      * Output: none
-     * Description: Constructor that creates a Tile object and sets its value to
-     * 2 or 4
+     * Description: Constructor that creates a Tile object at the given
+     * coordinates with the given value
      */
-    public Tile(double x, double y) {
-        // Initializes x and y variables
+    public Tile(double x, double y, int value) {
         this.x = x;
         this.y = y;
-
-        // Sets new tile value to 2 or 4
-        if (Math.random() < 0.5) {
-            this.value = 2;
-        }
-        else {
-            this.value = 4;
-        }
+        this.value = value;
     }
 
     /**
      * Input: none
      * Output: none
-     * Description: Draws a tile at the called location.
+     * Description: Draws a tile at the called location by copying the
+     * pre-rendered sprite for its value (see TileSprites).
      */
     public void drawTile() {
+        PennDraw.picture(this.x, this.y, TileSprites.get(this.value));
+    }
+
+    /**
+     * Input: none
+     * Output: none
+     * Description: Draws a tile at the called location shape by shape. Used
+     * by TileSprites to render each value once.
+     */
+    public void renderTile() {
         PennDraw.setPenColor(PennDraw.WHITE);
         PennDraw.filledSquare(this.x, this.y, 0.09);
 
@@ -79,47 +83,4 @@ public class Tile
     public double getY() {
         return this.y;
     }
-
-    /**
-     * Input: double newY
-     * Output: none
-     * Description: Setter method that replaces the y-coordinate for a Tile with newY
-     */
-    public void setY(double newY) {
-        this.y = newY;
-    }
-
-    /**
-     * Input: double newX
-     * Output: none
-     * Description: Setter method that replaces the x-coordinate for a Tile with newX
-     */
-    public void setX(double newX) {
-        this.x = newX;
-    }
-
-    /**
-     * Input: Tile t
-     * Output: none
-     * Description: Computes the new value of the merged tiles (doubles the
-     * original Tile value)
-     */
-    public void finalMergeValue() {
-        this.value *= 2;
-    }
-
-    /**
-     * Input: Tile t
-     * Output: boolean
-     * Description: Determines if a Tile t can merge with another tile. True if
-     * the tiles have the same value. False otherwise.
-     */
-    public boolean mergeAllowed(Tile t) {
-        if (this.value == t.value) {
-            return true;
-        }
-        else {
-            return false;
-        }
-    }
 }
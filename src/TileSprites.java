@@ -0,0 +1,83 @@
+/**
+ * Execution: java TileSprites
+ *
+ * Program Description: Cache of pre-rendered tile images, one per tile value
+ * from 2 to 131072. Drawing a tile shape by shape derives fonts, fills and
+ * outlines a square and lays out its text; a sprite does all of that once per
+ * value and is then copied into place. Sprites are rendered at the current
+ * canvas scale and thrown away when the scale changes, e.g. on a resize.
+ */
+
+import java.awt.image.BufferedImage;
+
+public class TileSprites
+{
+    // Largest exponent cached, the 131072 tile
+    private static final int MAX_EXPONENT = 17;
+
+    // Half the side of the square a sprite covers, in user coordinates. The
+    // tile is 0.09 across half its side; the rest leaves room for its outline.
+    private static final double HALF_SIZE = 0.1;
+
+    private static BufferedImage[] sprites = new BufferedImage[MAX_EXPONENT + 1];
+    private static double spriteScaleX;         // Canvas scale the sprites
+    private static double spriteScaleY;         // were rendered at
+
+    /**
+     * Input: int value
+     * Output: BufferedImage
+     * Description: Returns the sprite for a tile of the input value, rendering
+     * it first if it is not cached at the current canvas scale.
+     */
+    public static BufferedImage get(int value) {
+        double scaleX = PennDraw.scaledWidth(1);
+        double scaleY = PennDraw.scaledHeight(1);
+
+        // Canvas resized or rescaled since the sprites were made
+        if (scaleX != spriteScaleX || scaleY != spriteScaleY) {
+            clear();
+            spriteScaleX = scaleX;
+            spriteScaleY = scaleY;
+        }
+
+        int exponent = Integer.numberOfTrailingZeros(value);
+
+        if (exponent > MAX_EXPONENT) {
+            return render(value);
+        }
+        if (sprites[exponent] == null) {
+            sprites[exponent] = render(value);
+        }
+
+        return sprites[exponent];
+    }
+
+    /**
+     * Input: none
+     * Output: none
+     * Description: Drops every cached sprite.
+     */
+    public static void clear() {
+        for (int k = 0; k < sprites.length; k++) {
+            sprites[k] = null;
+        }
+    }
+
+    /**
+     * Input: int value
+     * Output: BufferedImage
+     * Description: Renders a tile of the input value into a new image with
+     * the same drawing code and pen settings as a tile drawn on the canvas.
+     */
+    private static BufferedImage render(int value) {
+        int width = (int) Math.ceil(PennDraw.scaledWidth(2 * HALF_SIZE)) + 2;
+        int height = (int) Math.ceil(PennDraw.scaledHeight(2 * HALF_SIZE)) + 2;
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+
+        // Any point works as the center; the sprite is copied to the tile's
+        PennDraw.drawToImage(image, 0.5, 0.5,
+                             () -> new Tile(0.5, 0.5, value).renderTile());
+
+        return image;
+    }
+}
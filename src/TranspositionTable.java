@@ -0,0 +1,234 @@
+/**
+ * Execution: java TranspositionTable
+ *
+ * Program Description: Fixed-size cache of search results keyed by packed board
+ * (see BitBoard). Entries live in a single primitive array with open
+ * addressing, so lookups and stores never allocate. Each entry records the
+ * depth it was searched to; a lookup only hits if the stored depth is at least
+ * the depth asked for. When every slot in a key's probe window is taken, the
+ * shallowest entry is replaced. Callers whose results do not depend on
+ * orientation can key by BitBoard.canonical so all 8 symmetric positions share
+ * one entry.
+ *
+ * The table can be shared by several search threads without locks. Each slot
+ * is two longs: the board XORed with the entry's data word, then the data word
+ * itself. A reader only accepts a slot whose two words agree, so a slot caught
+ * halfway through a write by another thread reads as a miss, never as a wrong
+ * score.
+ */
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+public class TranspositionTable
+{
+    // Number of consecutive slots a key may occupy
+    private static final int PROBE_LIMIT = 4;
+
+    // Multiplier used to spread packed boards over the table
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    // Untorn 64-bit access to the entry array from any thread
+    private static final VarHandle ENTRY =
+        MethodHandles.arrayElementVarHandle(long[].class);
+
+    private long[] entries;     // Per slot: board ^ data, then data. The data
+                                // word holds the score's float bits in its high
+                                // half and depth + 1 in its low byte, 0 if empty
+    private int mask;           // Number of slots - 1
+    private int shift;          // Right shift that turns a hash into a slot
+
+    private LongAdder lookups = new LongAdder();    // Calls to get
+    private LongAdder hits = new LongAdder();       // Calls to get that hit
+    private LongAdder evictions = new LongAdder();  // Entries replaced by a
+                                                    // different board
+    private LongAdder occupied = new LongAdder();   // Slots in use
+
+    /**
+     * Input: int capacity
+     * Output: none
+     * Description: Constructor that creates an empty table with room for at
+     * least capacity entries. The size is rounded up to a power of two.
+     */
+    public TranspositionTable(int capacity) {
+        if (capacity < 1 || capacity > (1 << 29)) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^29");
+        }
+
+        int size = Math.max(PROBE_LIMIT, Integer.highestOneBit(capacity - 1) << 1);
+
+        this.entries = new long[2 * size];
+        this.mask = size - 1;
+        this.shift = 64 - Integer.numberOfTrailingZeros(size);
+    }
+
+    /**
+     * Input: long board
+     * Output: int
+     * Description: Returns the first slot of the input board's probe window.
+     */
+    private int slotFor(long board) {
+        return (int) ((board * HASH_MULTIPLIER) >>> shift);
+    }
+
+    /**
+     * Input: long data
+     * Output: int
+     * Description: Returns the depth stored in a data word, or -1 for an empty
+     * slot.
+     */
+    private static int depthOf(long data) {
+        return (int) (data & 0xFF) - 1;
+    }
+
+    /**
+     * Input: long board, int depth
+     * Output: float
+     * Description: Returns the stored score for the board if it was searched to
+     * at least the input depth, or NaN otherwise.
+     */
+    public float get(long board, int depth) {
+        lookups.increment();
+        int slot = slotFor(board);
+
+        for (int k = 0; k < PROBE_LIMIT; k++) {
+            int index = 2 * ((slot + k) & mask);
+            long data = (long) ENTRY.getOpaque(entries, index + 1);
+
+            if (data == 0) {
+                // Slots are never emptied, so the board is not further along
+                return Float.NaN;
+            }
+
+            if (((long) ENTRY.getOpaque(entries, index) ^ data) == board) {
+                if (depthOf(data) >= depth) {
+                    hits.increment();
+                    return Float.intBitsToFloat((int) (data >>> 32));
+                }
+                return Float.NaN;
+            }
+        }
+
+        return Float.NaN;
+    }
+
+    /**
+     * Input: long board, int depth, float score
+     * Output: none
+     * Description: Stores the score of the board searched to the input depth.
+     * An existing entry for the same board is only overwritten by a deeper or
+     * equal search. If the probe window is full, the shallowest entry in it is
+     * evicted.
+     */
+    public void put(long board, int depth, float score) {
+        long data = ((long) Float.floatToRawIntBits(score) << 32) | (depth + 1);
+        int slot = slotFor(board);
+        int victim = -1;
+        int victimDepth = Integer.MAX_VALUE;
+
+        for (int k = 0; k < PROBE_LIMIT; k++) {
+            int index = 2 * ((slot + k) & mask);
+            long stored = (long) ENTRY.getOpaque(entries, index + 1);
+
+            if (stored == 0) {
+                write(index, board, data);
+                occupied.increment();
+                return;
+            }
+
+            if (((long) ENTRY.getOpaque(entries, index) ^ stored) == board) {
+                if (depth >= depthOf(stored)) {
+                    write(index, board, data);
+                }
+                return;
+            }
+
+            if (depthOf(stored) < victimDepth) {
+                victim = index;
+                victimDepth = depthOf(stored);
+            }
+        }
+
+        write(victim, board, data);
+        evictions.increment();
+    }
+
+    /**
+     * Input: int index, long board, long data
+     * Output: none
+     * Description: Writes an entry's two words starting at the input array
+     * index.
+     */
+    private void write(int index, long board, long data) {
+        ENTRY.setOpaque(entries, index, board ^ data);
+        ENTRY.setOpaque(entries, index + 1, data);
+    }
+
+    /**
+     * Input: none
+     * Output: none
+     * Description: Removes every entry. Counters are kept. Must not be called
+     * while a search is using the table.
+     */
+    public void clear() {
+        Arrays.fill(entries, 0);
+        occupied.reset();
+    }
+
+    /**
+     * Input: none
+     * Output: long
+     * Description: Returns the number of lookups.
+     */
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    /**
+     * Input: none
+     * Output: long
+     * Description: Returns the number of lookups that hit.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Input: none
+     * Output: double
+     * Description: Returns the fraction of lookups that hit.
+     */
+    public double getHitRate() {
+        long total = lookups.sum();
+        return (total == 0) ? 0 : (double) hits.sum() / total;
+    }
+
+    /**
+     * Input: none
+     * Output: long
+     * Description: Returns the number of entries replaced by a different board.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Input: none
+     * Output: double
+     * Description: Returns the fraction of slots in use.
+     */
+    public double getOccupancy() {
+        return (double) occupied.sum() / getCapacity();
+    }
+
+    /**
+     * Input: none
+     * Output: int
+     * Description: Returns the number of slots in the table.
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+}